@@ -0,0 +1,109 @@
+package de.upb.crc901.proseco.commons.config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.aeonbits.owner.Config;
+import org.aeonbits.owner.ConfigFactory;
+import org.aeonbits.owner.Mutable;
+
+/**
+ * Registry of the configs loaded from properties files.
+ *
+ * A config is built once per config class, canonical file path and file version (modification time and length) and then shared. Since the same instance is handed out to every caller, the returned configs are immutable: the mutating methods of {@link Mutable} throw an {@link UnsupportedOperationException}. If the file changes, the config is loaded again on the next request.
+ *
+ * Every process has its own config files, so the registry only keeps the {@value #MAX_CONFIGS} most recently used configs; an evicted config is simply loaded again when it is requested.
+ */
+public class ConfigRegistry {
+
+	private static final int MAX_CONFIGS = 256;
+
+	private static final Map<String, LoadedConfig> CONFIGS = Collections.synchronizedMap(new LinkedHashMap<String, LoadedConfig>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, LoadedConfig> eldest) {
+			return this.size() > MAX_CONFIGS;
+		}
+	});
+
+	private ConfigRegistry() {
+		// intentionally left blank.
+	}
+
+	public static <T extends Config> T get(final Class<T> configClass, final File file) {
+		String path;
+		try {
+			path = file.getCanonicalPath();
+		} catch (IOException e) {
+			path = file.getAbsolutePath();
+		}
+		String key = configClass.getName() + "@" + path;
+		long lastModified = file.lastModified();
+		long length = file.length();
+
+		LoadedConfig loaded = CONFIGS.get(key);
+		if (loaded == null || loaded.lastModified != lastModified || loaded.length != length) {
+			loaded = new LoadedConfig(load(configClass, file), lastModified, length);
+			CONFIGS.put(key, loaded);
+		}
+		return configClass.cast(loaded.config);
+	}
+
+	/**
+	 * Drops all loaded configs, so that they are read from disk again on the next request.
+	 */
+	public static void clear() {
+		CONFIGS.clear();
+	}
+
+	private static <T extends Config> T load(final Class<T> configClass, final File file) {
+		Properties props = new Properties();
+		try (InputStream is = new FileInputStream(file)) {
+			props.load(is);
+		} catch (FileNotFoundException e) {
+			System.err.println("Could not find config file " + file.getAbsolutePath() + ". Assuming default configuration");
+		} catch (IOException e) {
+			System.err.println("Encountered problem with config file " + file + ". Assuming default configuration. Problem:" + e.getMessage());
+		}
+		return immutable(configClass, ConfigFactory.create(configClass, props));
+	}
+
+	private static <T extends Config> T immutable(final Class<T> configClass, final T config) {
+		Object proxy = Proxy.newProxyInstance(configClass.getClassLoader(), new Class<?>[] { configClass }, (p, method, args) -> {
+			if (isMutator(method)) {
+				throw new UnsupportedOperationException("Configs obtained from the " + ConfigRegistry.class.getSimpleName() + " are shared and must not be modified.");
+			}
+			try {
+				return method.invoke(config, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		});
+		return configClass.cast(proxy);
+	}
+
+	private static boolean isMutator(final Method method) {
+		return method.getDeclaringClass() == Mutable.class && !method.getName().endsWith("PropertyChangeListener");
+	}
+
+	private static class LoadedConfig {
+		private final Config config;
+		private final long lastModified;
+		private final long length;
+
+		LoadedConfig(final Config config, final long lastModified, final long length) {
+			this.config = config;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+	}
+}
@@ -1,12 +1,7 @@
 package de.upb.crc901.proseco.commons.config;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.util.Properties;
 
-import org.aeonbits.owner.ConfigFactory;
 import org.aeonbits.owner.Mutable;
 
 /**
@@ -44,15 +39,6 @@ public interface DomainConfig extends Mutable {
 	}
 
 	public static DomainConfig get(File file) {
-		Properties props = new Properties();
-		try {
-			props.load(new FileInputStream(file));
-		} catch (FileNotFoundException e) {
-			System.err.println("Could not find config file " + file + ". Assuming default configuration");
-		} catch (IOException e) {
-			System.err.println("Encountered problem with config file " + file + ". Assuming default configuration. Problem:" + e.getMessage());
-		}
-
-		return ConfigFactory.create(DomainConfig.class, props);
+		return ConfigRegistry.get(DomainConfig.class, file);
 	}
 }
@@ -1,13 +1,8 @@
 package de.upb.crc901.proseco.commons.config;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.util.Properties;
 
 import org.aeonbits.owner.Accessible;
-import org.aeonbits.owner.ConfigFactory;
 import org.aeonbits.owner.Mutable;
 
 public interface PROSECOConfig extends Mutable, Accessible {
@@ -25,9 +20,53 @@ public interface PROSECOConfig extends Mutable, Accessible {
 	public static final String SYSTEM_ALL_FILE = "proseco.system_all_file";
 	public static final String SERVICE_LOG_FILE = "proseco.service_log_file";
 	
+	/* whether strategy output is written once to a record-framed log instead of the out, err and all files */
+	public static final String CONSOLE_RECORD_LOG = "proseco.console.record_log";
+	public static final String CONSOLE_RECORD_FILE = "proseco.console.record_file";
+	
+	/* size caps of the console files of a strategy: each file is rotated into segments, of which only the newest are kept */
+	public static final String CONSOLE_SEGMENT_SIZE = "proseco.console.segment_bytes";
+	public static final String CONSOLE_MAX_SEGMENTS = "proseco.console.max_segments";
+	public static final String CONSOLE_COMPRESS_SEGMENTS = "proseco.console.compress_segments";
+	
 	/* whether or not PROSECO composition should clean up the working directory at the end */
 	public static final String FINAL_CLEAN_UP = "proseco.final_clean_up";
 	
+	/* how many candidate evaluations the webserver keeps per strategy */
+	public static final String CANDIDATE_RETENTION_LIMIT = "proseco.candidates.retention_limit";
+	
+	/* cache of process environments held by the webserver */
+	public static final String ENV_CACHE_MAX_SIZE = "proseco.envcache.max_size";
+	public static final String ENV_CACHE_TTL = "proseco.envcache.ttl_seconds";
+	
+	/* how strategies report their candidates to the webserver */
+	public static final String SERVER_URL = "proseco.server.url";
+	public static final String CANDIDATE_BATCH_SIZE = "proseco.candidates.batch_size";
+	public static final String CANDIDATE_BATCH_DELAY = "proseco.candidates.batch_delay_ms";
+	
+	/* how many compositions the webserver runs at the same time and how many may wait for execution */
+	public static final String MAX_CONCURRENT_JOBS = "proseco.jobs.max_concurrent";
+	public static final String MAX_QUEUED_JOBS = "proseco.jobs.max_queued";
+	
+	/* budget for the strategy processes of all compositions on this node (0 = detect) */
+	public static final String NODE_CPUS = "proseco.node.cpus";
+	public static final String NODE_MEMORY = "proseco.node.memory_mb";
+	public static final String NODE_PIN_CPUS = "proseco.node.pin_cpus";
+	
+	/* number of threads forwarding the console output of all strategy processes */
+	public static final String LOG_FORWARDER_THREADS = "proseco.logforwarder.threads";
+	
+	/* number of pre-started workers kept per strategy that has a worker runnable, and on the whole node */
+	public static final String WARM_WORKERS_PER_STRATEGY = "proseco.workers.spares_per_strategy";
+	public static final String WARM_WORKERS_MAX = "proseco.workers.max_spares";
+	
+	/* whether strategies with an in-process descriptor run inside the webserver JVM (only for trusted strategies) */
+	public static final String IN_PROCESS_STRATEGIES = "proseco.strategies.in_process";
+	
+	/* content-addressed cache of grounded solutions and its disk budget (0 = disabled) */
+	public static final String GROUNDING_CACHE_PATH = "proseco.grounding.cache_dir";
+	public static final String GROUNDING_CACHE_SIZE = "proseco.grounding.cache_mb";
+	
 	
 	@Key(DOMAINS_PATH)
 	@DefaultValue("domains")
@@ -61,19 +100,99 @@ public interface PROSECOConfig extends Mutable, Accessible {
 	@DefaultValue("console.all")
 	public String getSystemMergedOutputFileName();
 	
+	@Key(CONSOLE_RECORD_LOG)
+	@DefaultValue("false")
+	public boolean isConsoleRecordLogEnabled();
+	
+	@Key(CONSOLE_RECORD_FILE)
+	@DefaultValue("console.log")
+	public String getConsoleRecordFileName();
+	
+	@Key(CONSOLE_SEGMENT_SIZE)
+	@DefaultValue("8388608")
+	public long getConsoleSegmentSize();
+	
+	@Key(CONSOLE_MAX_SEGMENTS)
+	@DefaultValue("4")
+	public int getMaxConsoleSegments();
+	
+	@Key(CONSOLE_COMPRESS_SEGMENTS)
+	@DefaultValue("true")
+	public boolean isConsoleSegmentCompressionEnabled();
+	
+	@Key(CANDIDATE_RETENTION_LIMIT)
+	@DefaultValue("10000")
+	public int getCandidateRetentionLimit();
+	
+	@Key(ENV_CACHE_MAX_SIZE)
+	@DefaultValue("256")
+	public int getEnvironmentCacheMaxSize();
+	
+	@Key(ENV_CACHE_TTL)
+	@DefaultValue("600")
+	public int getEnvironmentCacheTTLInSeconds();
+	
+	@Key(SERVER_URL)
+	@DefaultValue("http://localhost:8080")
+	public String getServerURL();
+	
+	@Key(CANDIDATE_BATCH_SIZE)
+	@DefaultValue("100")
+	public int getCandidateBatchSize();
+	
+	@Key(CANDIDATE_BATCH_DELAY)
+	@DefaultValue("1000")
+	public long getCandidateBatchDelayInMS();
+	
+	@Key(MAX_CONCURRENT_JOBS)
+	@DefaultValue("2")
+	public int getMaxConcurrentJobs();
+	
+	@Key(MAX_QUEUED_JOBS)
+	@DefaultValue("20")
+	public int getMaxQueuedJobs();
+	
+	@Key(NODE_CPUS)
+	@DefaultValue("0")
+	public int getNodeCPUs();
+	
+	@Key(NODE_MEMORY)
+	@DefaultValue("0")
+	public int getNodeMemoryInMB();
+	
+	@Key(NODE_PIN_CPUS)
+	@DefaultValue("true")
+	public boolean isCPUPinningEnabled();
+	
+	@Key(LOG_FORWARDER_THREADS)
+	@DefaultValue("2")
+	public int getNumberOfLogForwarderThreads();
+	
+	@Key(WARM_WORKERS_PER_STRATEGY)
+	@DefaultValue("1")
+	public int getNumberOfWarmWorkersPerStrategy();
+	
+	@Key(WARM_WORKERS_MAX)
+	@DefaultValue("4")
+	public int getMaxNumberOfWarmWorkers();
+	
+	@Key(IN_PROCESS_STRATEGIES)
+	@DefaultValue("false")
+	public boolean isInProcessExecutionEnabled();
+	
+	@Key(GROUNDING_CACHE_PATH)
+	@DefaultValue("grounding-cache")
+	public File getDirectoryForGroundingCache();
+	
+	@Key(GROUNDING_CACHE_SIZE)
+	@DefaultValue("0")
+	public long getGroundingCacheSizeInMB();
+	
 	public static PROSECOConfig get(String file) {
 		return get(new File(file));
 	}
 	
 	public static PROSECOConfig get(File file) {
-		Properties props = new Properties();
-		try {
-			props.load(new FileInputStream(file));
-		} catch (FileNotFoundException e) {
-			System.err.println("Could not find config file " + file.getAbsolutePath() + ". Assuming default configuration");
-		} catch (IOException e) {
-			System.err.println("Encountered problem with config file " + file + ". Assuming default configuration. Problem:" + e.getMessage());
-		}
-		return ConfigFactory.create(PROSECOConfig.class, props);
+		return ConfigRegistry.get(PROSECOConfig.class, file);
 	}
 }
@@ -1,12 +1,7 @@
 package de.upb.crc901.proseco.commons.config;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.util.Properties;
 
-import org.aeonbits.owner.ConfigFactory;
 import org.aeonbits.owner.Mutable;
 
 /**
@@ -20,6 +15,16 @@ public interface PrototypeConfig extends Mutable {
 	/* search */
 	public static final String STRATEGIES = "pbc.strategies_path";
 	public static final String STRATEGY_RUNNABLE = "pbc.strategy.runnable";
+	public static final String STRATEGY_CPUS = "pbc.strategy.cpus";
+	public static final String STRATEGY_MEMORY = "pbc.strategy.memory_mb";
+	public static final String STRATEGY_WORKER_RUNNABLE = "pbc.strategy.worker_runnable";
+	public static final String STRATEGY_IN_PROCESS_DESCRIPTOR = "pbc.strategy.inprocess_descriptor";
+
+	/* early termination of the search (lower scores are better) */
+	public static final String SEARCH_TARGET_SCORE = "proseco.search.target_score";
+	public static final String SEARCH_STOP_ON_FIRST_SOLUTION = "proseco.search.stop_on_first_solution";
+	public static final String SEARCH_MAX_STAGNATION = "proseco.search.max_stagnation_seconds";
+	public static final String SEARCH_SHUTDOWN_GRACE = "proseco.search.shutdown_grace_seconds";
 
 	/* pre-grounding filter */
 	public static final String PRE_GROUNDING_HOOK = "pbc.hook.preground";
@@ -28,6 +33,9 @@ public interface PrototypeConfig extends Mutable {
 	public static final String GROUNDING_FOLDER = "proseco.grounding.folder";
 	public static final String GROUNDING_EXEC = "proseco.grounding.executable";
 	public static final String GROUNDING_RESERVEDSECONDS = "proseco.grounding.reservedseconds";
+	public static final String GROUNDING_SPECULATIVE = "proseco.grounding.speculative";
+	public static final String GROUNDING_CANDIDATES = "proseco.grounding.candidates";
+	public static final String GROUNDING_VERSION_FILE = "proseco.grounding.version_file";
 
 	/* deployment */
 	public static final String DEPLOYMENT_EXEC = "proseco.deployment.executable";
@@ -64,6 +72,21 @@ public interface PrototypeConfig extends Mutable {
 	@DefaultValue("5")
 	public int getSecondsReservedForGrounding();
 
+	/** Whether the current best solution is already grounded in the background while the search is running */
+	@Key(GROUNDING_SPECULATIVE)
+	@DefaultValue("false")
+	public boolean isSpeculativeGroundingEnabled();
+
+	/** Number of best strategies whose solutions are grounded in parallel and validated, so another one can be deployed if the best one fails; further groundings only use idle cores */
+	@Key(GROUNDING_CANDIDATES)
+	@DefaultValue("1")
+	public int getNumberOfGroundingCandidates();
+
+	/** File in the prototype folder whose content identifies the version of the grounding for the grounding cache; if empty, the content of the grounding folder is used */
+	@Key(GROUNDING_VERSION_FILE)
+	@DefaultValue("")
+	public String getGroundingVersionFile();
+
 	@Key(DEPLOYMENT_EXEC)
 	@DefaultValue("deployment")
 	public String getDeploymentCommand();
@@ -92,6 +115,45 @@ public interface PrototypeConfig extends Mutable {
 	@DefaultValue("run")
 	public String getSearchRunnable();
 
+	/** Number of cores each strategy process expects */
+	@Key(STRATEGY_CPUS)
+	@DefaultValue("1")
+	public int getCPUsPerStrategy();
+
+	/** Memory in MB each strategy process expects */
+	@Key(STRATEGY_MEMORY)
+	@DefaultValue("512")
+	public int getMemoryPerStrategyInMB();
+
+	/** Script in the strategy folder that starts a warm worker for the strategy, empty to always start the strategy with its runnable */
+	@Key(STRATEGY_WORKER_RUNNABLE)
+	@DefaultValue("")
+	public String getWorkerRunnable();
+
+	/** Properties file in the strategy folder naming the class and class path of a Java strategy that may run inside the PROSECO JVM */
+	@Key(STRATEGY_IN_PROCESS_DESCRIPTOR)
+	@DefaultValue("inprocess.properties")
+	public String getInProcessDescriptor();
+
+	/** Score at which the remaining strategies are stopped, NaN to disable */
+	@Key(SEARCH_TARGET_SCORE)
+	@DefaultValue("NaN")
+	public double getTargetScore();
+
+	@Key(SEARCH_STOP_ON_FIRST_SOLUTION)
+	@DefaultValue("false")
+	public boolean isStopOnFirstSolutionEnabled();
+
+	/** Seconds without improvement of the best score after which the strategies are stopped, 0 to disable */
+	@Key(SEARCH_MAX_STAGNATION)
+	@DefaultValue("0")
+	public int getMaxStagnationInSeconds();
+
+	/** Seconds that strategies get after SIGTERM to write their final results before they are killed */
+	@Key(SEARCH_SHUTDOWN_GRACE)
+	@DefaultValue("3")
+	public int getShutdownGracePeriodInSeconds();
+
 	public static PrototypeConfig get(final PROSECOConfig prosecoConfig, final String prototypeName) {
 		return get(new File(prosecoConfig.getDirectoryForDomains() + File.separator + prototypeName + File.separator + "prototype.conf"));
 	}
@@ -101,16 +163,7 @@ public interface PrototypeConfig extends Mutable {
 	}
 
 	public static PrototypeConfig get(final File file) {
-		Properties props = new Properties();
-		try {
-			props.load(new FileInputStream(file));
-		} catch (FileNotFoundException e) {
-			System.err.println("Could not find config file " + file + ". Assuming default configuration");
-		} catch (IOException e) {
-			System.err.println("Encountered problem with config file " + file + ". Assuming default configuration. Problem:" + e.getMessage());
-		}
-
-		return ConfigFactory.create(PrototypeConfig.class, props);
+		return ConfigRegistry.get(PrototypeConfig.class, file);
 	}
 
 	@Key(PRE_GROUNDING_HOOK)
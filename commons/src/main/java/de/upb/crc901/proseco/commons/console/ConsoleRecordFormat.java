@@ -0,0 +1,60 @@
+package de.upb.crc901.proseco.commons.console;
+
+/**
+ * Layout of the record-framed console log, which holds the output of both streams of a strategy in a single append-only file.
+ *
+ * Each record consists of a header of {@value #HEADER_LENGTH} bytes (stream id, time stamp in milliseconds since the epoch, payload length; all big-endian) followed by the payload as read from the pipe of the process.
+ */
+public class ConsoleRecordFormat {
+
+	public static final int HEADER_LENGTH = 1 + 8 + 4;
+
+	/* markers framing chunks of the error stream in the textual views: "$_(" and ")_$" CR LF */
+	public static final byte[] ERROR_MARKER_START = { 36, 95, 40 };
+	public static final byte[] ERROR_MARKER_END = { 41, 95, 36, 13, 10 };
+
+	private ConsoleRecordFormat() {
+		// intentionally left blank.
+	}
+
+	public static byte streamId(final EConsoleStream stream) {
+		return (byte) stream.ordinal();
+	}
+
+	public static EConsoleStream stream(final byte streamId) {
+		EConsoleStream[] streams = EConsoleStream.values();
+		if (streamId < 0 || streamId >= streams.length) {
+			throw new IllegalArgumentException("Unknown console stream id " + streamId);
+		}
+		return streams[streamId];
+	}
+
+	/**
+	 * Writes the header of a record into the given buffer.
+	 */
+	public static void writeHeader(final byte[] buffer, final int offset, final EConsoleStream stream, final long timestamp, final int payloadLength) {
+		buffer[offset] = streamId(stream);
+		for (int i = 0; i < 8; i++) {
+			buffer[offset + 1 + i] = (byte) (timestamp >>> (56 - 8 * i));
+		}
+		for (int i = 0; i < 4; i++) {
+			buffer[offset + 9 + i] = (byte) (payloadLength >>> (24 - 8 * i));
+		}
+	}
+
+	public static long readTimestamp(final byte[] buffer, final int offset) {
+		long timestamp = 0;
+		for (int i = 0; i < 8; i++) {
+			timestamp = (timestamp << 8) | (buffer[offset + 1 + i] & 0xFF);
+		}
+		return timestamp;
+	}
+
+	public static int readPayloadLength(final byte[] buffer, final int offset) {
+		int length = 0;
+		for (int i = 0; i < 4; i++) {
+			length = (length << 8) | (buffer[offset + 9 + i] & 0xFF);
+		}
+		return length;
+	}
+}
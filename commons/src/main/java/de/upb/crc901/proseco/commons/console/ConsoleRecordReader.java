@@ -0,0 +1,110 @@
+package de.upb.crc901.proseco.commons.console;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Builds the textual views of a record-framed console log (see {@link ConsoleRecordFormat}) from a given byte offset on.
+ *
+ * The view of a single stream only reads the headers of the records of the other stream and skips their payloads. Chunks of the error stream are framed with the same markers as in the separate console files, so the views are
+ * identical to the content of console.out, console.err and console.all. Records that are still being written are left for the next read.
+ */
+public class ConsoleRecordReader {
+
+	/* upper bound for the number of payload bytes delivered by a single read */
+	private static final int MAX_BYTES_PER_READ = 4 * 1024 * 1024;
+
+	private ConsoleRecordReader() {
+		// intentionally left blank.
+	}
+
+	/**
+	 * @param stream
+	 *            The stream to show, or <code>null</code> for the merged view of both streams.
+	 * @return The view, or <code>null</code> if the file does not exist.
+	 */
+	public static ConsoleView read(final Path file, final long offset, final EConsoleStream stream) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = offset <= size ? offset : 0;
+			ByteBuffer header = ByteBuffer.allocate(ConsoleRecordFormat.HEADER_LENGTH);
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			long lastTimestamp = -1;
+
+			while (position + ConsoleRecordFormat.HEADER_LENGTH <= size && content.size() < MAX_BYTES_PER_READ) {
+				header.clear();
+				while (header.hasRemaining()) {
+					if (channel.read(header, position + header.position()) < 0) {
+						break;
+					}
+				}
+				int length = ConsoleRecordFormat.readPayloadLength(header.array(), 0);
+				long next = position + ConsoleRecordFormat.HEADER_LENGTH + length;
+				if (next > size) {
+					/* the record is not complete yet */
+					break;
+				}
+
+				EConsoleStream recordStream = ConsoleRecordFormat.stream(header.get(0));
+				if (stream == null || stream == recordStream) {
+					ByteBuffer payload = ByteBuffer.allocate(length);
+					while (payload.hasRemaining()) {
+						if (channel.read(payload, position + ConsoleRecordFormat.HEADER_LENGTH + payload.position()) < 0) {
+							break;
+						}
+					}
+					append(content, recordStream, payload.array(), 0, payload.position());
+					lastTimestamp = ConsoleRecordFormat.readTimestamp(header.array(), 0);
+				}
+				position = next;
+			}
+			return new ConsoleView(new String(content.toByteArray(), StandardCharsets.UTF_8), position, lastTimestamp);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Builds the view of records that have already been read into memory, e.g. from a closed segment of the log.
+	 *
+	 * @param records
+	 *            Bytes that start at a record boundary; an incomplete record at the end is left for the next read.
+	 * @return The view, whose next offset is the number of bytes consumed from the given array.
+	 */
+	public static ConsoleView read(final byte[] records, final EConsoleStream stream) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		long lastTimestamp = -1;
+		int position = 0;
+		while (position + ConsoleRecordFormat.HEADER_LENGTH <= records.length && content.size() < MAX_BYTES_PER_READ) {
+			int length = ConsoleRecordFormat.readPayloadLength(records, position);
+			int next = position + ConsoleRecordFormat.HEADER_LENGTH + length;
+			if (next > records.length) {
+				break;
+			}
+			EConsoleStream recordStream = ConsoleRecordFormat.stream(records[position]);
+			if (stream == null || stream == recordStream) {
+				append(content, recordStream, records, position + ConsoleRecordFormat.HEADER_LENGTH, length);
+				lastTimestamp = ConsoleRecordFormat.readTimestamp(records, position);
+			}
+			position = next;
+		}
+		return new ConsoleView(new String(content.toByteArray(), StandardCharsets.UTF_8), position, lastTimestamp);
+	}
+
+	private static void append(final ByteArrayOutputStream content, final EConsoleStream recordStream, final byte[] payload, final int offset, final int length) throws IOException {
+		if (recordStream == EConsoleStream.ERR) {
+			content.write(ConsoleRecordFormat.ERROR_MARKER_START);
+			content.write(payload, offset, length);
+			content.write(ConsoleRecordFormat.ERROR_MARKER_END);
+		} else {
+			content.write(payload, offset, length);
+		}
+	}
+
+}
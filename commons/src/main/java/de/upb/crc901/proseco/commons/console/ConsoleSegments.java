@@ -0,0 +1,196 @@
+package de.upb.crc901.proseco.commons.console;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Access to the segments that a {@link RotatingFileOutputStream} has produced for a console file.
+ */
+public class ConsoleSegments {
+
+	public static final String COMPRESSED_SUFFIX = ".gz";
+
+	private ConsoleSegments() {
+		// intentionally left blank.
+	}
+
+	public static File getSegment(final File file, final int index, final boolean compressed) {
+		return new File(file.getPath() + "." + index + (compressed ? COMPRESSED_SUFFIX : ""));
+	}
+
+	/**
+	 * @return The closed segments of the file, oldest first. A segment that is still being compressed is only listed once.
+	 */
+	public static List<File> getClosedSegments(final File file) {
+		File[] candidates = file.getAbsoluteFile().getParentFile() != null ? file.getAbsoluteFile().getParentFile().listFiles() : null;
+		List<File> segments = new ArrayList<>();
+		if (candidates == null) {
+			return segments;
+		}
+		String prefix = file.getName() + ".";
+		for (File candidate : candidates) {
+			String name = candidate.getName();
+			if (!name.startsWith(prefix)) {
+				continue;
+			}
+			int index = getIndex(file, candidate);
+			if (index < 0) {
+				continue;
+			}
+			if (!name.endsWith(COMPRESSED_SUFFIX) && getSegment(file, index, true).exists()) {
+				/* the compressed copy is complete, the uncompressed one is about to be deleted */
+				continue;
+			}
+			segments.add(candidate);
+		}
+		Collections.sort(segments, Comparator.comparingInt(s -> getIndex(file, s)));
+		return segments;
+	}
+
+	/**
+	 * @return The index of the active segment, i.e. the index it will get once it is closed. Since rotation renames the active segment before a new one is started, a reader can tell from a change of this index that the
+	 *         file it has been reading has been closed.
+	 */
+	public static int getActiveIndex(final File file) {
+		List<File> segments = getClosedSegments(file);
+		return segments.isEmpty() ? 1 : getIndex(file, segments.get(segments.size() - 1)) + 1;
+	}
+
+	/**
+	 * @return The closed segment with the given index, or <code>null</code> if it has been deleted.
+	 */
+	public static File getClosedSegment(final File file, final int index) {
+		for (File segment : getClosedSegments(file)) {
+			if (getIndex(file, segment) == index) {
+				return segment;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return The index of the oldest closed segment that is newer than the given one, or the index of the active segment if there is none.
+	 */
+	public static int getNextIndex(final File file, final int index) {
+		for (File segment : getClosedSegments(file)) {
+			int segmentIndex = getIndex(file, segment);
+			if (segmentIndex > index) {
+				return segmentIndex;
+			}
+		}
+		return getActiveIndex(file);
+	}
+
+	/**
+	 * Reads the newest bytes of the file up to the given length of its active segment, continuing into the closed segments if the active segment holds fewer bytes than requested.
+	 */
+	public static byte[] readWindow(final File file, final long activeLength, final int windowSize) throws IOException {
+		List<byte[]> parts = new ArrayList<>();
+		int remaining = windowSize;
+
+		try (RandomAccessFile active = new RandomAccessFile(file, "r")) {
+			long length = Math.min(activeLength, active.length());
+			int read = (int) Math.min(length, remaining);
+			byte[] part = new byte[read];
+			active.seek(length - read);
+			active.readFully(part);
+			parts.add(part);
+			remaining -= read;
+		}
+
+		List<File> segments = getClosedSegments(file);
+		for (int i = segments.size() - 1; i >= 0 && remaining > 0; i--) {
+			try {
+				byte[] part = readTail(segments.get(i), remaining);
+				parts.add(part);
+				remaining -= part.length;
+			} catch (IOException e) {
+				/* the segment has been compressed or deleted in the meantime */
+				break;
+			}
+		}
+
+		ByteArrayOutputStream window = new ByteArrayOutputStream(windowSize - remaining);
+		for (int i = parts.size() - 1; i >= 0; i--) {
+			window.write(parts.get(i));
+		}
+		return window.toByteArray();
+	}
+
+	/**
+	 * Reads at most <code>maxLength</code> bytes of a closed segment, starting at the given offset of its uncompressed content.
+	 */
+	public static byte[] readFrom(final File segment, final long offset, final int maxLength) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		try (InputStream in = segment.getName().endsWith(COMPRESSED_SUFFIX) ? new GZIPInputStream(new FileInputStream(segment)) : new FileInputStream(segment)) {
+			long skipped = 0;
+			while (skipped < offset) {
+				long n = in.skip(offset - skipped);
+				if (n <= 0) {
+					return new byte[0];
+				}
+				skipped += n;
+			}
+			byte[] buffer = new byte[8192];
+			int read;
+			while (content.size() < maxLength && (read = in.read(buffer, 0, Math.min(buffer.length, maxLength - content.size()))) != -1) {
+				content.write(buffer, 0, read);
+			}
+		}
+		return content.toByteArray();
+	}
+
+	/**
+	 * Reads at most the last <code>length</code> bytes of a closed segment. Compressed segments are decompressed as a stream, so only the requested bytes are kept in memory.
+	 */
+	private static byte[] readTail(final File segment, final int length) throws IOException {
+		if (!segment.getName().endsWith(COMPRESSED_SUFFIX)) {
+			try (RandomAccessFile in = new RandomAccessFile(segment, "r")) {
+				byte[] tail = new byte[(int) Math.min(length, in.length())];
+				in.seek(in.length() - tail.length);
+				in.readFully(tail);
+				return tail;
+			}
+		}
+
+		byte[] ring = new byte[length];
+		long total = 0;
+		try (InputStream in = new GZIPInputStream(new FileInputStream(segment))) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				for (int i = 0; i < read; i++) {
+					ring[(int) (total++ % length)] = buffer[i];
+				}
+			}
+		}
+		int size = (int) Math.min(total, length);
+		byte[] tail = new byte[size];
+		int start = (int) ((total - size) % length);
+		for (int i = 0; i < size; i++) {
+			tail[i] = ring[(start + i) % length];
+		}
+		return tail;
+	}
+
+	private static int getIndex(final File file, final File segment) {
+		String index = segment.getName().substring(file.getName().length() + 1);
+		if (index.endsWith(COMPRESSED_SUFFIX)) {
+			index = index.substring(0, index.length() - COMPRESSED_SUFFIX.length());
+		}
+		try {
+			return Integer.parseInt(index);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+}
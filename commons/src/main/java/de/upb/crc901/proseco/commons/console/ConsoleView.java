@@ -0,0 +1,32 @@
+package de.upb.crc901.proseco.commons.console;
+
+/**
+ * Text of one or both console streams read from a record-framed console log, together with the offset from which the next read has to continue.
+ */
+public class ConsoleView {
+
+	private final String content;
+	private final long nextOffset;
+	private final long lastTimestamp;
+
+	public ConsoleView(final String content, final long nextOffset, final long lastTimestamp) {
+		this.content = content;
+		this.nextOffset = nextOffset;
+		this.lastTimestamp = lastTimestamp;
+	}
+
+	public String getContent() {
+		return this.content;
+	}
+
+	public long getNextOffset() {
+		return this.nextOffset;
+	}
+
+	/**
+	 * @return The time stamp of the last record in this view, -1 if the view is empty.
+	 */
+	public long getLastTimestamp() {
+		return this.lastTimestamp;
+	}
+}
@@ -0,0 +1,21 @@
+package de.upb.crc901.proseco.commons.console;
+
+/**
+ * The console streams of a strategy process.
+ */
+public enum EConsoleStream {
+
+	OUT("out"), ERR("err");
+
+	private String name;
+
+	private EConsoleStream(final String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String toString() {
+		return this.name;
+	}
+
+}
@@ -0,0 +1,154 @@
+package de.upb.crc901.proseco.commons.console;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Output stream for a console file whose size is capped by rotating it into segments.
+ *
+ * The active segment is always the file itself, so readers that follow the file keep working. Once it exceeds the segment size, it is renamed to <code>file.N</code> and a new active segment is started. Closed segments are
+ * compressed to <code>file.N.gz</code> and all but the newest few are deleted by a background thread. If no closed segments are to be kept, the newest one is truncated instead of deleted, so readers can still tell which
+ * segment is active. Rotation only happens between two writes, so a chunk or record written with one call is never split across segments.
+ */
+public class RotatingFileOutputStream extends OutputStream {
+
+	private static final Logger L = LoggerFactory.getLogger(RotatingFileOutputStream.class);
+
+	private static final ExecutorService HOUSEKEEPER = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "console-segment-housekeeper");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final File file;
+	private final long segmentSize;
+	private final int maxClosedSegments;
+	private final boolean compress;
+
+	private FileOutputStream out;
+	private long size = 0;
+	private int nextSegment = 1;
+
+	/**
+	 * @param segmentSize
+	 *            Number of bytes after which the file is rotated, 0 disables rotation.
+	 * @param maxClosedSegments
+	 *            Number of closed segments that are kept in addition to the active one.
+	 * @param compress
+	 *            Whether closed segments are gzipped.
+	 */
+	public RotatingFileOutputStream(final File file, final long segmentSize, final int maxClosedSegments, final boolean compress) throws IOException {
+		this.file = file;
+		this.segmentSize = segmentSize;
+		this.maxClosedSegments = Math.max(0, maxClosedSegments);
+		this.compress = compress;
+
+		/* like a plain FileOutputStream, start from scratch */
+		for (File segment : ConsoleSegments.getClosedSegments(file)) {
+			Files.deleteIfExists(segment.toPath());
+		}
+		this.out = new FileOutputStream(file);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		this.rotateIfNecessary(1);
+		this.out.write(b);
+		this.size++;
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		this.rotateIfNecessary(len);
+		this.out.write(b, off, len);
+		this.size += len;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.out.close();
+	}
+
+	private void rotateIfNecessary(final int length) throws IOException {
+		if (this.segmentSize <= 0 || this.size == 0 || this.size + length <= this.segmentSize) {
+			return;
+		}
+		File segment = ConsoleSegments.getSegment(this.file, this.nextSegment, false);
+		this.out.close();
+		try {
+			Files.move(this.file.toPath(), segment.toPath());
+		} catch (IOException e) {
+			/* e.g. the file is opened by a reader on Windows; keep writing and try again with the next write */
+			L.debug("Could not rotate {}: {}", this.file, e.getMessage());
+			this.out = new FileOutputStream(this.file, true);
+			return;
+		}
+		this.out = new FileOutputStream(this.file);
+		this.size = 0;
+
+		int closedSegment = this.nextSegment++;
+		int obsoleteSegment = closedSegment - this.maxClosedSegments;
+		HOUSEKEEPER.execute(() -> {
+			if (this.compress && this.maxClosedSegments > 0) {
+				compress(segment);
+			}
+			if (this.maxClosedSegments == 0) {
+				/* keep an empty placeholder of the newest segment, so readers can still tell from its index that the file has been rotated */
+				try (OutputStream truncate = new FileOutputStream(segment)) {
+					// intentionally left blank.
+				} catch (IOException e) {
+					L.warn("Could not truncate segment {} of {}: {}", closedSegment, this.file, e.getMessage());
+				}
+				this.deleteSegment(closedSegment - 1);
+			} else if (obsoleteSegment > 0) {
+				this.deleteSegment(obsoleteSegment);
+			}
+		});
+	}
+
+	private void deleteSegment(final int index) {
+		if (index <= 0) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(ConsoleSegments.getSegment(this.file, index, false).toPath());
+			Files.deleteIfExists(ConsoleSegments.getSegment(this.file, index, true).toPath());
+		} catch (IOException e) {
+			L.warn("Could not delete segment {} of {}: {}", index, this.file, e.getMessage());
+		}
+	}
+
+	private static void compress(final File segment) {
+		File compressed = new File(segment.getPath() + ConsoleSegments.COMPRESSED_SUFFIX);
+		File partial = new File(compressed.getPath() + ".tmp");
+		try (InputStream in = new FileInputStream(segment); OutputStream gz = new GZIPOutputStream(new FileOutputStream(partial))) {
+			IOUtils.copy(in, gz);
+		} catch (IOException e) {
+			L.warn("Could not compress segment {}: {}", segment, e.getMessage());
+			partial.delete();
+			return;
+		}
+		if (partial.renameTo(compressed)) {
+			segment.delete();
+		} else {
+			partial.delete();
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package de.upb.crc901.proseco.commons.controller;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.aeonbits.owner.ConfigCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.config.GlobalConfig;
+import de.upb.crc901.proseco.commons.util.PROSECOProcessEnvironment;
+
+/**
+ * Thread-safe cache of {@link PROSECOProcessEnvironment}s.
+ *
+ * Entries are evicted in LRU order once the cache holds <code>maxSize</code> environments, and they expire after <code>ttlInMS</code>. An entry is also dropped as soon as the process.json or the interview state file of the process changes on disk, because both determine the content of the environment. Environments are created outside the lock, so a slow creation never blocks lookups of other processes.
+ */
+public class ProcessEnvironmentCache {
+
+	private static final Logger L = LoggerFactory.getLogger(ProcessEnvironmentCache.class);
+
+	private static final GlobalConfig GLOBAL_CONFIG = ConfigCache.getOrCreate(GlobalConfig.class);
+
+	private final ProcessController processController;
+	private final long ttlInMS;
+	private final Map<String, CacheEntry> entries;
+
+	public ProcessEnvironmentCache(final ProcessController processController, final int maxSize, final long ttlInMS) {
+		this.processController = processController;
+		this.ttlInMS = ttlInMS;
+		this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, CacheEntry> eldest) {
+				return this.size() > maxSize;
+			}
+		};
+	}
+
+	public PROSECOProcessEnvironment get(final String processId) throws Exception {
+		CacheEntry entry;
+		synchronized (this) {
+			entry = this.entries.get(processId);
+		}
+		if (entry != null) {
+			if (entry.isValid(this.ttlInMS)) {
+				L.trace("return env from cache for processid {}", processId);
+				return entry.environment;
+			}
+			L.trace("cached env of processid {} is outdated", processId);
+		}
+
+		L.trace("create new process environment for {}", processId);
+		PROSECOProcessEnvironment env = this.processController.getConstructionProcessEnvironment(processId);
+		CacheEntry newEntry = new CacheEntry(env);
+		synchronized (this) {
+			this.entries.put(processId, newEntry);
+		}
+		return env;
+	}
+
+	public synchronized void invalidate(final String processId) {
+		this.entries.remove(processId);
+	}
+
+	public synchronized void invalidateAll() {
+		this.entries.clear();
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	private static class CacheEntry {
+		private final PROSECOProcessEnvironment environment;
+		private final long creationTime;
+		private final File processConfigFile;
+		private final long processConfigStamp;
+		private final long interviewStateStamp;
+
+		CacheEntry(final PROSECOProcessEnvironment environment) {
+			this.environment = environment;
+			this.creationTime = System.currentTimeMillis();
+			this.processConfigFile = new File(environment.getProcessDirectory(), GLOBAL_CONFIG.processConfigFilename());
+			this.processConfigStamp = stamp(this.processConfigFile);
+			this.interviewStateStamp = stamp(environment.getInterviewStateFile());
+		}
+
+		boolean isValid(final long ttlInMS) {
+			return System.currentTimeMillis() - this.creationTime <= ttlInMS && this.processConfigStamp == stamp(this.processConfigFile) && this.interviewStateStamp == stamp(this.environment.getInterviewStateFile());
+		}
+
+		/* modification time and length, so that rewrites within the resolution of the file system clock are detected as well in most cases */
+		private static long stamp(final File file) {
+			return file.lastModified() * 31 + file.length();
+		}
+	}
+}
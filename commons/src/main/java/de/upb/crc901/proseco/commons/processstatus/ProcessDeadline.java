@@ -0,0 +1,149 @@
+package de.upb.crc901.proseco.commons.processstatus;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time budget of a PROSECO process, created once when its composition starts.
+ *
+ * All time measurements use {@link System#nanoTime()}, so they are not affected by changes of the wall clock. The budget ends with the deployment; time reserved for later phases is subtracted from the deadline of earlier
+ * phases, so a phase can ask how much time it has left without re-deriving it. Durations of the phases are recorded for reporting. Other OS processes, such as strategies, receive their deadline as wall-clock time via
+ * {@link #ENV_DEADLINE}, since nano times cannot be compared across processes.
+ */
+public class ProcessDeadline {
+
+	/** Name of the environment variable that tells a strategy by when (in milliseconds since the epoch) it has to be done */
+	public static final String ENV_DEADLINE = "PROSECO_DEADLINE";
+
+	private static final Map<String, ProcessDeadline> deadlines = new ConcurrentHashMap<>();
+
+	private final String processId;
+	private final long budgetInNanos;
+	private final long startNanos;
+	private final long startMillis;
+
+	private final Map<EProcessState, Long> reservations = new EnumMap<>(EProcessState.class);
+	private final Map<EProcessState, Long> phaseStarts = new EnumMap<>(EProcessState.class);
+	private final Map<EProcessState, Long> phaseEnds = new EnumMap<>(EProcessState.class);
+
+	public ProcessDeadline(final String processId, final long budgetInMS) {
+		this.processId = processId;
+		this.budgetInNanos = TimeUnit.MILLISECONDS.toNanos(budgetInMS);
+		this.startNanos = System.nanoTime();
+		this.startMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * Creates the deadline of a process and makes it available via {@link #forProcess(String)}.
+	 */
+	public static ProcessDeadline create(final String processId, final long budgetInMS) {
+		ProcessDeadline deadline = new ProcessDeadline(processId, budgetInMS);
+		deadlines.put(processId, deadline);
+		return deadline;
+	}
+
+	/**
+	 * @return The deadline of the process or <code>null</code> if its composition has not been started (in this JVM).
+	 */
+	public static ProcessDeadline forProcess(final String processId) {
+		return deadlines.get(processId);
+	}
+
+	/**
+	 * Forgets the deadline of a process whose composition has ended.
+	 */
+	public static void remove(final String processId) {
+		deadlines.remove(processId);
+	}
+
+	public String getProcessId() {
+		return this.processId;
+	}
+
+	/**
+	 * Reserves time at the end of the budget for the given phase.
+	 */
+	public synchronized void reserve(final EProcessState phase, final long timeInMS) {
+		this.reservations.put(phase, TimeUnit.MILLISECONDS.toNanos(timeInMS));
+	}
+
+	public synchronized long getReservationInMS(final EProcessState phase) {
+		Long reservation = this.reservations.get(phase);
+		return reservation != null ? TimeUnit.NANOSECONDS.toMillis(reservation) : 0;
+	}
+
+	/**
+	 * @return The time left in the whole budget (may be negative).
+	 */
+	public long getRemainingMS() {
+		return TimeUnit.NANOSECONDS.toMillis(this.budgetInNanos - (System.nanoTime() - this.startNanos));
+	}
+
+	/**
+	 * @return The time left until the given phase has to end, i.e. the remaining budget minus the reservations of all later phases (may be negative).
+	 */
+	public synchronized long getRemainingMS(final EProcessState phase) {
+		long reservedForLaterPhases = 0;
+		for (Map.Entry<EProcessState, Long> reservation : this.reservations.entrySet()) {
+			if (reservation.getKey().ordinal() > phase.ordinal()) {
+				reservedForLaterPhases += reservation.getValue();
+			}
+		}
+		return this.getRemainingMS() - TimeUnit.NANOSECONDS.toMillis(reservedForLaterPhases);
+	}
+
+	/**
+	 * @return The end of the given phase as wall-clock time, for passing it to other processes.
+	 */
+	public long getEpochDeadline(final EProcessState phase) {
+		return System.currentTimeMillis() + this.getRemainingMS(phase);
+	}
+
+	public boolean isExpired() {
+		return this.getRemainingMS() <= 0;
+	}
+
+	/**
+	 * Records the start of a phase; the previous phase, if any is running, ends at the same time.
+	 */
+	public synchronized void startPhase(final EProcessState phase) {
+		long now = System.nanoTime();
+		for (EProcessState runningPhase : this.phaseStarts.keySet()) {
+			if (!this.phaseEnds.containsKey(runningPhase)) {
+				this.phaseEnds.put(runningPhase, now);
+			}
+		}
+		this.phaseStarts.put(phase, now);
+	}
+
+	public synchronized void endPhase(final EProcessState phase) {
+		if (this.phaseStarts.containsKey(phase) && !this.phaseEnds.containsKey(phase)) {
+			this.phaseEnds.put(phase, System.nanoTime());
+		}
+	}
+
+	/**
+	 * @return The durations of the phases started so far in milliseconds; phases that are still running are measured up to now.
+	 */
+	public synchronized Map<EProcessState, Long> getPhaseDurationsInMS() {
+		Map<EProcessState, Long> durations = new LinkedHashMap<>();
+		long now = System.nanoTime();
+		for (Map.Entry<EProcessState, Long> start : this.phaseStarts.entrySet()) {
+			Long end = this.phaseEnds.get(start.getKey());
+			durations.put(start.getKey(), TimeUnit.NANOSECONDS.toMillis((end != null ? end : now) - start.getValue()));
+		}
+		return durations;
+	}
+
+	public long getStartMillis() {
+		return this.startMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "ProcessDeadline [processId=" + this.processId + ", budget=" + TimeUnit.NANOSECONDS.toMillis(this.budgetInNanos) + "ms, remaining=" + this.getRemainingMS() + "ms, phases=" + this.getPhaseDurationsInMS() + "]";
+	}
+}
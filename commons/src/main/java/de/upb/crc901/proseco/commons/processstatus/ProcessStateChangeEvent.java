@@ -0,0 +1,52 @@
+package de.upb.crc901.proseco.commons.processstatus;
+
+/**
+ * Transition of a process from one {@link EProcessState} to another.
+ */
+public class ProcessStateChangeEvent {
+
+	private final String processId;
+	private final EProcessState previousState;
+	private final EProcessState newState;
+	private final long timestamp;
+	private final String serviceHandle;
+
+	public ProcessStateChangeEvent(final String processId, final EProcessState previousState, final EProcessState newState, final String serviceHandle) {
+		this.processId = processId;
+		this.previousState = previousState;
+		this.newState = newState;
+		this.timestamp = System.currentTimeMillis();
+		this.serviceHandle = serviceHandle;
+	}
+
+	public String getProcessId() {
+		return this.processId;
+	}
+
+	/**
+	 * @return The state before the transition or <code>null</code> if it was unknown.
+	 */
+	public EProcessState getPreviousState() {
+		return this.previousState;
+	}
+
+	public EProcessState getNewState() {
+		return this.newState;
+	}
+
+	public long getTimestamp() {
+		return this.timestamp;
+	}
+
+	/**
+	 * @return The handle of the deployed service or <code>null</code> if no service has been deployed (yet).
+	 */
+	public String getServiceHandle() {
+		return this.serviceHandle;
+	}
+
+	@Override
+	public String toString() {
+		return "ProcessStateChangeEvent [processId=" + this.processId + ", previousState=" + this.previousState + ", newState=" + this.newState + ", timestamp=" + this.timestamp + ", serviceHandle=" + this.serviceHandle + "]";
+	}
+}
@@ -0,0 +1,12 @@
+package de.upb.crc901.proseco.commons.processstatus;
+
+/**
+ * Is notified about the transitions of PROSECO processes between {@link EProcessState}s.
+ *
+ * Listeners are called on the thread that performs the transition, i.e. usually the composition thread, and therefore should return quickly.
+ */
+public interface ProcessStateListener {
+
+	public void onProcessStateChanged(ProcessStateChangeEvent event);
+
+}
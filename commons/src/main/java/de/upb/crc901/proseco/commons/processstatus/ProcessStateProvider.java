@@ -1,40 +1,88 @@
 package de.upb.crc901.proseco.commons.processstatus;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.upb.crc901.proseco.commons.util.PROSECOProcessEnvironment;
+import de.upb.crc901.proseco.commons.config.PROSECOConfig;
 import de.upb.crc901.proseco.commons.controller.DefaultProcessController;
 import de.upb.crc901.proseco.commons.controller.ProcessController;
+import de.upb.crc901.proseco.commons.controller.ProcessEnvironmentCache;
 import de.upb.crc901.proseco.commons.util.FileUtil;
 
+/**
+ * Keeps the {@link EProcessState} of every process.
+ *
+ * While the server is up, the in-memory registry is authoritative; status polls never touch the disk. Transitions are persisted to the process.status file of the process in the background, where several transitions of a process within {@value #WRITE_DELAY_IN_MS}ms are coalesced into a single write. At startup, the registry is rebuilt from the process.status files in the processes directory.
+ *
+ * Registered {@link ProcessStateListener}s are notified about every transition, so that clients do not need to poll the status.
+ */
 public class ProcessStateProvider {
 
 	private static final Logger logger = LoggerFactory.getLogger(ProcessStateProvider.class);
 
 	private static final String NO_PROCESS_PROCESSID = "NaN";
 	private static final EProcessState DEFAULT_PROCESS_STATE = EProcessState.DOMAIN_DEFINITION;
+	private static final String PROCESS_STATUS_FILENAME = "process.status";
+	private static final long WRITE_DELAY_IN_MS = 200;
 
-	private static final ProcessController PROCESS_CONTROLLER = new DefaultProcessController(new File("conf/proseco.conf"));
-	private static final Map<String, PROSECOProcessEnvironment> envCache = new HashMap<>();
+	private static final File PROSECO_CONFIG_FILE = new File("conf/proseco.conf");
+	private static final ProcessController PROCESS_CONTROLLER = new DefaultProcessController(PROSECO_CONFIG_FILE);
+	private static final ProcessEnvironmentCache envCache;
+
+	/* in-memory registry and write-behind state */
+	private static final Map<String, EProcessState> processStates = new ConcurrentHashMap<>();
+	private static final Map<String, File> statusFiles = new ConcurrentHashMap<>();
+	private static final Map<String, String> serviceHandles = new ConcurrentHashMap<>();
+	private static final List<ProcessStateListener> listeners = new CopyOnWriteArrayList<>();
+	private static final Set<String> dirtyProcesses = ConcurrentHashMap.newKeySet();
+	private static final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+	private static final ScheduledExecutorService statusWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "process-status-writer");
+		t.setDaemon(true);
+		return t;
+	});
+
+	static {
+		PROSECOConfig config = PROSECOConfig.get(PROSECO_CONFIG_FILE);
+		envCache = new ProcessEnvironmentCache(PROCESS_CONTROLLER, config.getEnvironmentCacheMaxSize(), config.getEnvironmentCacheTTLInSeconds() * 1000L);
+		restoreFromDisk(config.getDirectoryForProcesses());
+		Runtime.getRuntime().addShutdownHook(new Thread(ProcessStateProvider::flush, "process-status-flush"));
+	}
 
 	public static String getProcessStatus(final String processID) throws Exception {
 		if (processID.equals(NO_PROCESS_PROCESSID)) {
 			return DEFAULT_PROCESS_STATE.toString();
 		}
-		PROSECOProcessEnvironment env = getProcessEnvironment(processID);
-		File processStatus = new File(env.getProcessDirectory(), "process.status");
+		EProcessState state = processStates.get(processID);
+		if (state != null) {
+			return state.toString();
+		}
+
+		/* not known to the registry yet, e.g. because the process folder has been created after startup */
+		File processStatus = getStatusFile(processID);
 		if (processStatus.exists()) {
-			return FileUtil.readFile(processStatus.getAbsolutePath());
+			state = readProcessStateValue(FileUtil.readFile(processStatus.getAbsolutePath()).trim());
+			processStates.putIfAbsent(processID, state);
+			return processStates.get(processID).toString();
 		} else {
 			setProcessStatus(processID, DEFAULT_PROCESS_STATE);
 			return DEFAULT_PROCESS_STATE.toString();
@@ -42,11 +90,109 @@ public class ProcessStateProvider {
 	}
 
 	public static void setProcessStatus(final String processID, final EProcessState newStatus) throws Exception {
-		PROSECOProcessEnvironment env = getProcessEnvironment(processID);
-		File processStatus = new File(env.getProcessDirectory(), "process.status");
-		try (BufferedWriter bw = new BufferedWriter(new FileWriter(processStatus))) {
-			bw.write(newStatus.toString());
+		setProcessStatus(processID, newStatus, null);
+	}
+
+	/**
+	 * Sets the state of the process and notifies the listeners.
+	 *
+	 * @param serviceHandle The handle of the deployed service if it is known with this transition, <code>null</code> otherwise.
+	 */
+	public static void setProcessStatus(final String processID, final EProcessState newStatus, final String serviceHandle) throws Exception {
+		getStatusFile(processID);
+		if (serviceHandle != null) {
+			serviceHandles.put(processID, serviceHandle);
+		}
+		EProcessState previousStatus = processStates.put(processID, newStatus);
+		dirtyProcesses.add(processID);
+		if (flushScheduled.compareAndSet(false, true)) {
+			statusWriter.schedule(ProcessStateProvider::flush, WRITE_DELAY_IN_MS, TimeUnit.MILLISECONDS);
 		}
+
+		ProcessStateChangeEvent event = new ProcessStateChangeEvent(processID, previousStatus, newStatus, serviceHandles.get(processID));
+		for (ProcessStateListener listener : listeners) {
+			try {
+				listener.onProcessStateChanged(event);
+			} catch (RuntimeException e) {
+				logger.warn("Process state listener {} failed on {}", listener, event, e);
+			}
+		}
+	}
+
+	/**
+	 * @return The handle of the service deployed for the given process or <code>null</code> if there is none yet. The service handle file is read at most once per process.
+	 */
+	public static String getServiceHandle(final String processID) throws Exception {
+		String serviceHandle = serviceHandles.get(processID);
+		if (serviceHandle == null && EProcessState.DONE.toString().equals(getProcessStatus(processID))) {
+			File serviceHandleFile = getProcessEnvironment(processID).getServiceHandle();
+			if (serviceHandleFile.exists()) {
+				serviceHandle = FileUtil.readFile(serviceHandleFile.getAbsolutePath());
+				serviceHandles.put(processID, serviceHandle);
+			}
+		}
+		return serviceHandle;
+	}
+
+	public static void addListener(final ProcessStateListener listener) {
+		listeners.add(listener);
+	}
+
+	public static void removeListener(final ProcessStateListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Writes the current state of all processes with pending transitions to disk.
+	 */
+	public static synchronized void flush() {
+		flushScheduled.set(false);
+		for (String processID : dirtyProcesses) {
+			dirtyProcesses.remove(processID);
+			EProcessState state = processStates.get(processID);
+			File processStatus = statusFiles.get(processID);
+			if (state == null || processStatus == null) {
+				continue;
+			}
+			try {
+				File tmpFile = new File(processStatus.getParentFile(), PROCESS_STATUS_FILENAME + ".tmp");
+				Files.write(tmpFile.toPath(), state.toString().getBytes(StandardCharsets.UTF_8));
+				Files.move(tmpFile.toPath(), processStatus.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				logger.warn("Could not persist status {} of process {} to {}", state, processID, processStatus, e);
+			}
+		}
+	}
+
+	private static File getStatusFile(final String processID) throws Exception {
+		File processStatus = statusFiles.get(processID);
+		if (processStatus == null) {
+			PROSECOProcessEnvironment env = getProcessEnvironment(processID);
+			processStatus = new File(env.getProcessDirectory(), PROCESS_STATUS_FILENAME);
+			statusFiles.put(processID, processStatus);
+		}
+		return processStatus;
+	}
+
+	private static void restoreFromDisk(final File processesDirectory) {
+		File[] processFolders = processesDirectory.listFiles(File::isDirectory);
+		if (processFolders == null) {
+			return;
+		}
+		for (File processFolder : processFolders) {
+			File processStatus = new File(processFolder, PROCESS_STATUS_FILENAME);
+			if (!processStatus.exists()) {
+				continue;
+			}
+			try {
+				String processID = processFolder.getName();
+				processStates.put(processID, readProcessStateValue(FileUtil.readFile(processStatus.getAbsolutePath()).trim()));
+				statusFiles.put(processID, processStatus);
+			} catch (RuntimeException e) {
+				logger.warn("Ignoring unreadable status file {}: {}", processStatus, e.getMessage());
+			}
+		}
+		logger.debug("Restored the status of {} processes from {}", processStates.size(), processesDirectory);
 	}
 
 	public static EProcessState readProcessStateValue(final String value) {
@@ -59,21 +205,16 @@ public class ProcessStateProvider {
 	}
 
 	public static PROSECOProcessEnvironment getProcessEnvironment(final String processID, final boolean invalidateIfExists) throws Exception {
-		if (invalidateIfExists && envCache.containsKey(processID)) {
-			envCache.remove(processID);
+		if (invalidateIfExists) {
+			envCache.invalidate(processID);
 		}
 		return getProcessEnvironment(processID);
 	}
 
+	/**
+	 * Returns the environment of the given process from the shared environment cache, which every controller should use instead of creating environments on its own.
+	 */
 	public static PROSECOProcessEnvironment getProcessEnvironment(final String processID) throws Exception {
-		if (envCache.containsKey(processID)) {
-			logger.trace("return env from cache for processid " + processID);
-			return envCache.get(processID);
-		} else {
-			logger.trace("create new process environment for " + processID);
-			PROSECOProcessEnvironment env = PROCESS_CONTROLLER.getConstructionProcessEnvironment(processID);
-			envCache.put(processID, env);
-			return env;
-		}
+		return envCache.get(processID);
 	}
 }
@@ -0,0 +1,56 @@
+package de.upb.crc901.proseco.commons.util;
+
+/**
+ * Resource usage of a single OS process at some point in time, see {@link ProcessTree#sample(long)}.
+ */
+public class ProcessSample {
+
+	private final long pid;
+	private final long parentPid;
+	private final long startTime;
+	private final long cpuTimeInMS;
+	private final long childrenCpuTimeInMS;
+	private final long rssInBytes;
+
+	public ProcessSample(final long pid, final long parentPid, final long startTime, final long cpuTimeInMS, final long childrenCpuTimeInMS, final long rssInBytes) {
+		this.pid = pid;
+		this.parentPid = parentPid;
+		this.startTime = startTime;
+		this.cpuTimeInMS = cpuTimeInMS;
+		this.childrenCpuTimeInMS = childrenCpuTimeInMS;
+		this.rssInBytes = rssInBytes;
+	}
+
+	public long getPid() {
+		return this.pid;
+	}
+
+	public long getParentPid() {
+		return this.parentPid;
+	}
+
+	/**
+	 * @return The start time of the process in clock ticks since boot. Together with the pid, it identifies a process even if its pid is reused later.
+	 */
+	public long getStartTime() {
+		return this.startTime;
+	}
+
+	/**
+	 * @return User and system CPU time consumed by the process itself, excluding its children.
+	 */
+	public long getCpuTimeInMS() {
+		return this.cpuTimeInMS;
+	}
+
+	/**
+	 * @return User and system CPU time consumed by the children of the process that have terminated and been waited for, including their own waited-for children.
+	 */
+	public long getChildrenCpuTimeInMS() {
+		return this.childrenCpuTimeInMS;
+	}
+
+	public long getRssInBytes() {
+		return this.rssInBytes;
+	}
+}
@@ -0,0 +1,360 @@
+package de.upb.crc901.proseco.commons.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Operations on an OS process together with all of its descendants.
+ *
+ * Strategies are usually started through a script that launches the actual search as a child, so signaling only the direct child leaves the search running. Descendants are determined from <code>/proc</code> on Linux and from
+ * <code>ps</code> on other Unix systems; on Windows, <code>taskkill /T</code> takes care of the tree. Resource usage can only be sampled where <code>/proc</code> is available.
+ */
+public class ProcessTree {
+
+	private static final Logger L = LoggerFactory.getLogger(ProcessTree.class);
+
+	private static final boolean WINDOWS = System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+	private static final File PROC = new File("/proc");
+
+	private static volatile long clockTicksPerSecond = -1;
+	private static volatile long pageSize = -1;
+
+	private ProcessTree() {
+		// intentionally left blank.
+	}
+
+	/**
+	 * @return The OS id of the process or -1 if it cannot be determined.
+	 */
+	public static long getPid(final Process process) {
+		try {
+			/* Java 9 and later */
+			Method pid = Process.class.getMethod("pid");
+			return (Long) pid.invoke(process);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// fall through
+		}
+		try {
+			/* UNIXProcess of Java 8 */
+			Field pid = process.getClass().getDeclaredField("pid");
+			pid.setAccessible(true);
+			return pid.getLong(process);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return The ids of all living descendants of the process, children first.
+	 */
+	public static List<Long> getDescendants(final long pid) {
+		List<Long> descendants = new ArrayList<>();
+		if (pid < 0 || WINDOWS) {
+			return descendants;
+		}
+		Map<Long, List<Long>> children = getChildrenByParent();
+		Deque<Long> open = new ArrayDeque<>();
+		open.add(pid);
+		while (!open.isEmpty()) {
+			List<Long> childrenOfProcess = children.get(open.poll());
+			if (childrenOfProcess != null) {
+				for (Long child : childrenOfProcess) {
+					if (!descendants.contains(child)) {
+						descendants.add(child);
+						open.add(child);
+					}
+				}
+			}
+		}
+		return descendants;
+	}
+
+	public static boolean isAlive(final long pid) {
+		if (PROC.isDirectory()) {
+			File stat = new File(PROC, pid + File.separator + "stat");
+			try {
+				/* zombies have terminated but not been reaped yet */
+				return stat.exists() && !parseStat(new String(Files.readAllBytes(stat.toPath()), StandardCharsets.US_ASCII))[0].equals("Z");
+			} catch (IOException e) {
+				return false;
+			}
+		}
+		return signal(pid, "0");
+	}
+
+	/**
+	 * Reads the current resource usage of a single process from <code>/proc</code>.
+	 *
+	 * @return The sample or <code>null</code> if the process does not exist (anymore) or <code>/proc</code> is not available.
+	 */
+	public static ProcessSample sample(final long pid) {
+		if (!PROC.isDirectory()) {
+			return null;
+		}
+		try {
+			String[] stat = parseStat(new String(Files.readAllBytes(new File(PROC, pid + File.separator + "stat").toPath()), StandardCharsets.US_ASCII));
+			long cpuTicks = Long.parseLong(stat[11]) + Long.parseLong(stat[12]);
+			long childrenCpuTicks = Long.parseLong(stat[13]) + Long.parseLong(stat[14]);
+			long startTime = Long.parseLong(stat[19]);
+			long rssBytes = Long.parseLong(stat[21]) * getPageSize();
+			return new ProcessSample(pid, Long.parseLong(stat[1]), startTime, cpuTicks * 1000 / getClockTicksPerSecond(), childrenCpuTicks * 1000 / getClockTicksPerSecond(), rssBytes);
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Terminates the processes and all of their descendants: first they are asked to terminate (SIGTERM), and those that are still alive after the grace period are killed (SIGKILL).
+	 *
+	 * @return The ids of processes that are still alive afterwards.
+	 */
+	public static List<Long> terminate(final Collection<Process> processes, final long gracePeriodInMS) throws InterruptedException {
+		return terminate(processes, new ArrayList<>(), gracePeriodInMS);
+	}
+
+	/**
+	 * Like {@link #terminate(Collection, long)}, but additionally terminates the given processes, e.g. descendants that have been seen earlier and are orphaned by now, so they are no longer found as descendants.
+	 *
+	 * Processes are identified by their id together with their start time, so a pid that has been reused by an unrelated process in the meantime is never signaled.
+	 */
+	public static List<Long> terminate(final Collection<Process> processes, final Collection<ProcessSample> knownDescendants, final long gracePeriodInMS) throws InterruptedException {
+		/* pid -> start time, -1 if the start time cannot be determined */
+		Map<Long, Long> tree = new LinkedHashMap<>();
+		for (ProcessSample known : knownDescendants) {
+			if (isSameProcess(known.getPid(), known.getStartTime())) {
+				tree.putIfAbsent(known.getPid(), known.getStartTime());
+				addDescendants(tree, known.getPid());
+			}
+		}
+		for (Process process : processes) {
+			collectTree(tree, process);
+		}
+
+		if (WINDOWS) {
+			for (Process process : processes) {
+				long pid = getPid(process);
+				if (pid >= 0) {
+					run("taskkill", "/PID", String.valueOf(pid), "/T");
+				} else {
+					process.destroy();
+				}
+			}
+		} else {
+			for (Process process : processes) {
+				process.destroy();
+			}
+			for (Map.Entry<Long, Long> entry : tree.entrySet()) {
+				signalIfSame(entry.getKey(), entry.getValue(), "TERM");
+			}
+		}
+
+		/* grace period for writing final results */
+		long deadline = System.currentTimeMillis() + gracePeriodInMS;
+		for (Process process : processes) {
+			process.waitFor(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+		}
+		while (System.currentTimeMillis() < deadline && anyAlive(tree)) {
+			Thread.sleep(50);
+		}
+
+		/* descendants of processes that are still alive may have changed in the meantime */
+		for (Process process : processes) {
+			if (process.isAlive()) {
+				collectTree(tree, process);
+			}
+		}
+		for (Process process : processes) {
+			if (process.isAlive()) {
+				if (WINDOWS && getPid(process) >= 0) {
+					run("taskkill", "/PID", String.valueOf(getPid(process)), "/T", "/F");
+				}
+				process.destroyForcibly();
+			}
+		}
+		List<Long> survivors = new ArrayList<>();
+		for (Map.Entry<Long, Long> entry : tree.entrySet()) {
+			if (isSameProcess(entry.getKey(), entry.getValue())) {
+				L.debug("Process {} did not terminate within {}ms, killing it.", entry.getKey(), gracePeriodInMS);
+				signalIfSame(entry.getKey(), entry.getValue(), "KILL");
+			}
+		}
+		for (Process process : processes) {
+			process.waitFor(1, TimeUnit.SECONDS);
+		}
+		Thread.sleep(50);
+		for (Map.Entry<Long, Long> entry : tree.entrySet()) {
+			if (isSameProcess(entry.getKey(), entry.getValue())) {
+				survivors.add(entry.getKey());
+			}
+		}
+		for (Process process : processes) {
+			if (process.isAlive()) {
+				survivors.add(getPid(process));
+			}
+		}
+		return survivors;
+	}
+
+	private static long getClockTicksPerSecond() {
+		if (clockTicksPerSecond <= 0) {
+			clockTicksPerSecond = getconf("CLK_TCK", 100);
+		}
+		return clockTicksPerSecond;
+	}
+
+	private static long getPageSize() {
+		if (pageSize <= 0) {
+			pageSize = getconf("PAGESIZE", 4096);
+		}
+		return pageSize;
+	}
+
+	private static long getconf(final String variable, final long defaultValue) {
+		try {
+			Process p = new ProcessBuilder("getconf", variable).start();
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.US_ASCII))) {
+				String value = reader.readLine();
+				p.waitFor();
+				return value != null ? Long.parseLong(value.trim()) : defaultValue;
+			}
+		} catch (IOException | RuntimeException e) {
+			return defaultValue;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return defaultValue;
+		}
+	}
+
+	private static void collectTree(final Map<Long, Long> tree, final Process process) {
+		long pid = getPid(process);
+		if (pid >= 0) {
+			tree.putIfAbsent(pid, getStartTime(pid));
+			addDescendants(tree, pid);
+		}
+	}
+
+	private static void addDescendants(final Map<Long, Long> tree, final long pid) {
+		for (Long descendant : getDescendants(pid)) {
+			tree.putIfAbsent(descendant, getStartTime(descendant));
+		}
+	}
+
+	private static long getStartTime(final long pid) {
+		ProcessSample sample = sample(pid);
+		return sample != null ? sample.getStartTime() : -1;
+	}
+
+	/**
+	 * @return Whether the process is alive and still the one that has been started at the given time.
+	 */
+	private static boolean isSameProcess(final long pid, final long startTime) {
+		if (!isAlive(pid)) {
+			return false;
+		}
+		return startTime < 0 || getStartTime(pid) == startTime;
+	}
+
+	private static boolean anyAlive(final Map<Long, Long> tree) {
+		for (Map.Entry<Long, Long> entry : tree.entrySet()) {
+			if (isSameProcess(entry.getKey(), entry.getValue())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Signals the process unless its pid has been reused since the given start time.
+	 */
+	private static boolean signalIfSame(final long pid, final long startTime, final String signal) {
+		if (!isSameProcess(pid, startTime)) {
+			return false;
+		}
+		return signal(pid, signal);
+	}
+
+	private static boolean signal(final long pid, final String signal) {
+		if (WINDOWS) {
+			return false;
+		}
+		return run("kill", "-" + signal, String.valueOf(pid)) == 0;
+	}
+
+	private static int run(final String... command) {
+		try {
+			Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+			p.getInputStream().close();
+			return p.waitFor();
+		} catch (IOException e) {
+			L.warn("Could not run {}: {}", command[0], e.getMessage());
+			return -1;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+	}
+
+	private static Map<Long, List<Long>> getChildrenByParent() {
+		Map<Long, List<Long>> children = new HashMap<>();
+		File[] entries = PROC.isDirectory() ? PROC.listFiles() : null;
+		if (entries != null) {
+			for (File entry : entries) {
+				if (!entry.getName().chars().allMatch(Character::isDigit)) {
+					continue;
+				}
+				try {
+					String[] stat = parseStat(new String(Files.readAllBytes(new File(entry, "stat").toPath()), StandardCharsets.US_ASCII));
+					children.computeIfAbsent(Long.parseLong(stat[1]), k -> new ArrayList<>()).add(Long.parseLong(entry.getName()));
+				} catch (IOException | RuntimeException e) {
+					/* the process has terminated in the meantime */
+				}
+			}
+			return children;
+		}
+
+		try {
+			Process ps = new ProcessBuilder("ps", "-A", "-o", "pid=,ppid=").start();
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(ps.getInputStream(), StandardCharsets.US_ASCII))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] fields = line.trim().split("\\s+");
+					if (fields.length == 2) {
+						children.computeIfAbsent(Long.parseLong(fields[1]), k -> new ArrayList<>()).add(Long.parseLong(fields[0]));
+					}
+				}
+			}
+			ps.waitFor();
+		} catch (IOException | RuntimeException e) {
+			L.warn("Could not list processes: {}", e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return children;
+	}
+
+	/**
+	 * @return The fields of <code>/proc/[pid]/stat</code> following the command name, i.e. state, ppid, ...
+	 */
+	static String[] parseStat(final String stat) {
+		/* the command name is in parentheses and may contain spaces */
+		return stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+	}
+}
@@ -0,0 +1,146 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Collects the candidates found by a strategy and posts them to the webserver in batches instead of one request per candidate.
+ *
+ * A batch is sent as newline-delimited JSON as soon as it holds the configured number of events or the oldest buffered event has waited for the configured delay. Sending happens on a background thread, so reporting a candidate never waits for the network. Buffered events are also sent when the buffer is closed or the JVM shuts down.
+ */
+public class CandidateEventBuffer implements Closeable {
+
+	private static final Logger L = LoggerFactory.getLogger(CandidateEventBuffer.class);
+
+	private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+	private static final int CONNECT_TIMEOUT_IN_MS = 5000;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final URL endpoint;
+	private final int batchSize;
+	private final long maxDelayInMS;
+	private final ScheduledExecutorService sender;
+	private final Thread shutdownHook;
+
+	/* guarded by this */
+	private List<ObjectNode> buffer = new ArrayList<>();
+	private boolean flushScheduled = false;
+
+	/**
+	 * @param serverURL Base URL of the PROSECO webserver, e.g. http://localhost:8080.
+	 * @param strategyName The name of the strategy the candidates belong to.
+	 * @param batchSize The number of events after which a batch is sent.
+	 * @param maxDelayInMS The maximum time an event is buffered.
+	 * @throws IOException If the URL of the batch endpoint is malformed.
+	 */
+	public CandidateEventBuffer(final String serverURL, final String strategyName, final int batchSize, final long maxDelayInMS) throws IOException {
+		this.endpoint = new URL(serverURL + "/api/strategy/candidateEvals/" + strategyName);
+		this.batchSize = Math.max(1, batchSize);
+		this.maxDelayInMS = Math.max(1, maxDelayInMS);
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread t = new Thread(r, "candidate-event-sender-" + strategyName);
+			t.setDaemon(true);
+			return t;
+		});
+		executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		this.sender = executor;
+		this.shutdownHook = new Thread(this::flush, "candidate-event-flush-" + strategyName);
+		Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+	}
+
+	public void report(final String candidateID, final String candidateDescription, final double candidateEvaluation) {
+		this.report(candidateID, System.currentTimeMillis(), candidateDescription, candidateEvaluation);
+	}
+
+	public void report(final String candidateID, final long candidateFoundTimestamp, final String candidateDescription, final double candidateEvaluation) {
+		ObjectNode event = this.mapper.createObjectNode();
+		event.put("candidateID", candidateID);
+		event.put("candidateFoundTimestamp", candidateFoundTimestamp);
+		event.put("candidateDescription", candidateDescription);
+		event.put("candidateEvaluation", candidateEvaluation);
+
+		boolean closed = this.sender.isShutdown();
+		synchronized (this) {
+			this.buffer.add(event);
+			if (closed) {
+				/* events reported after closing the buffer are sent directly */
+			} else if (this.buffer.size() >= this.batchSize) {
+				this.sender.execute(this::flush);
+			} else if (!this.flushScheduled) {
+				this.flushScheduled = true;
+				this.sender.schedule(this::flush, this.maxDelayInMS, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (closed) {
+			this.flush();
+		}
+	}
+
+	/**
+	 * Sends all buffered events in the calling thread.
+	 */
+	public void flush() {
+		List<ObjectNode> batch;
+		synchronized (this) {
+			this.flushScheduled = false;
+			if (this.buffer.isEmpty()) {
+				return;
+			}
+			batch = this.buffer;
+			this.buffer = new ArrayList<>();
+		}
+
+		try {
+			StringBuilder body = new StringBuilder();
+			for (ObjectNode event : batch) {
+				body.append(this.mapper.writeValueAsString(event)).append('\n');
+			}
+			byte[] payload = body.toString().getBytes(StandardCharsets.UTF_8);
+
+			HttpURLConnection connection = (HttpURLConnection) this.endpoint.openConnection();
+			connection.setRequestMethod("POST");
+			connection.setConnectTimeout(CONNECT_TIMEOUT_IN_MS);
+			connection.setDoOutput(true);
+			connection.setFixedLengthStreamingMode(payload.length);
+			connection.setRequestProperty("Content-Type", NDJSON_MEDIA_TYPE);
+			try (OutputStream os = connection.getOutputStream()) {
+				os.write(payload);
+			}
+			int responseCode = connection.getResponseCode();
+			if (responseCode == HttpURLConnection.HTTP_OK) {
+				connection.getInputStream().close();
+			} else {
+				L.warn("Webserver answered with {} to a batch of {} candidate events.", responseCode, batch.size());
+			}
+		} catch (IOException e) {
+			L.warn("Could not send {} candidate events to {}: {}", batch.size(), this.endpoint, e.getMessage());
+		}
+	}
+
+	@Override
+	public void close() {
+		this.sender.shutdown();
+		this.flush();
+		try {
+			Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+		} catch (IllegalStateException e) {
+			// the JVM is already shutting down and the hook takes care of the flush.
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.util.PROSECOProcessEnvironment;
+import de.upb.crc901.proseco.commons.util.ProcessTree;
+
+/**
+ * Grounds the solutions of several of the best strategies in parallel, each into a folder of its own, and validates the results with the analysis hook of the prototype.
+ *
+ * The solution of the best strategy is always grounded; the others only get grounded if the node has idle cores for them. The results are examined in the order of the scores. As soon as one has passed validation, the
+ * groundings that are still running are cancelled, and the finished ones that pass validation as well are kept as fallbacks for the deployment.
+ */
+public class CandidateGrounding {
+
+	private static final Logger L = LoggerFactory.getLogger(CandidateGrounding.class);
+
+	private static final String CANDIDATES_FOLDER = "grounding-candidates";
+
+	private final PROSECOProcessEnvironment executionEnvironment;
+	private final File candidatesDirectory;
+
+	public CandidateGrounding(final PROSECOProcessEnvironment executionEnvironment) {
+		this.executionEnvironment = executionEnvironment;
+		this.candidatesDirectory = new File(executionEnvironment.getSearchDirectory(), CANDIDATES_FOLDER);
+	}
+
+	/**
+	 * @return The folder into which the solution of the strategy is grounded.
+	 */
+	public File getDirectory(final String strategyName) {
+		return new File(this.candidatesDirectory, strategyName);
+	}
+
+	/**
+	 * Grounds and validates the solutions of the given strategies.
+	 *
+	 * @param rankedStrategies
+	 *            The strategies to ground, best first.
+	 * @return The strategies whose groundings have passed validation, best first.
+	 */
+	public List<String> groundAndValidate(final List<String> rankedStrategies) throws IOException, InterruptedException {
+		FileUtils.deleteDirectory(this.candidatesDirectory);
+		FileUtils.forceMkdir(this.candidatesDirectory);
+
+		StrategyResourceGovernor governor = StrategyResourceGovernor.get(this.executionEnvironment.getProsecoConfig());
+		List<String> strategies = new ArrayList<>();
+		List<Process> groundings = new ArrayList<>();
+		List<ResourceLease> leases = new ArrayList<>();
+		List<String> validated = new ArrayList<>();
+		try {
+			for (String strategy : rankedStrategies) {
+				if (!strategies.isEmpty()) {
+					ResourceLease lease = governor.tryAcquire(this.executionEnvironment.getProcessId() + "/grounding/" + strategy, 1, this.executionEnvironment.getPrototypeConfig().getMemoryPerStrategyInMB());
+					if (lease == null) {
+						L.info("No idle resources for grounding more than {} candidates.", strategies.size());
+						break;
+					}
+					leases.add(lease);
+				}
+				groundings.add(CompositionAlgorithm.startGrounding(this.executionEnvironment, strategy, this.getDirectory(strategy)));
+				strategies.add(strategy);
+			}
+
+			for (int i = 0; i < strategies.size(); i++) {
+				Process grounding = groundings.get(i);
+				if (!validated.isEmpty() && grounding.isAlive()) {
+					L.debug("Cancelling grounding of {}, a better candidate has already passed validation.", strategies.get(i));
+					ProcessTree.terminate(Collections.singletonList(grounding), 0);
+					continue;
+				}
+				int exitCode = grounding.waitFor();
+				if (exitCode != 0) {
+					L.warn("Grounding of {} failed with exit code {}.", strategies.get(i), exitCode);
+				} else if (this.validate(this.getDirectory(strategies.get(i)))) {
+					validated.add(strategies.get(i));
+				} else {
+					L.warn("Grounding of {} did not pass validation.", strategies.get(i));
+				}
+			}
+		} finally {
+			for (Process grounding : groundings) {
+				if (grounding.isAlive()) {
+					ProcessTree.terminate(Collections.singletonList(grounding), 0);
+				}
+			}
+			for (ResourceLease lease : leases) {
+				lease.release();
+			}
+		}
+		L.info("Groundings that passed validation: {}", validated);
+		return validated;
+	}
+
+	/**
+	 * Runs the analysis hook of the prototype on a grounded solution. Solutions are considered valid if the prototype does not have an analysis hook.
+	 */
+	private boolean validate(final File groundedSolution) throws IOException, InterruptedException {
+		File analysisExecutable = this.executionEnvironment.verificationExecutable();
+		if (analysisExecutable == null || !analysisExecutable.isFile()) {
+			return true;
+		}
+		analysisExecutable.setExecutable(true);
+		ProcessBuilder pb = new ProcessBuilder(analysisExecutable.getAbsolutePath(), groundedSolution.getAbsolutePath());
+		pb.redirectOutput(Redirect.INHERIT).redirectError(Redirect.INHERIT);
+		int exitCode = pb.start().waitFor();
+		L.debug("Analysis of {} returned {}.", groundedSolution, exitCode);
+		return exitCode == 0;
+	}
+}
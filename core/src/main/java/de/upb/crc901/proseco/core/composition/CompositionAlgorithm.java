@@ -5,12 +5,12 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.ProcessBuilder.Redirect;
-import java.net.Socket;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 import org.aeonbits.owner.ConfigFactory;
 import org.apache.commons.io.FileUtils;
@@ -20,6 +20,7 @@ import org.slf4j.LoggerFactory;
 import de.upb.crc901.proseco.commons.config.GlobalConfig;
 import de.upb.crc901.proseco.commons.config.PROSECOConfig;
 import de.upb.crc901.proseco.commons.processstatus.EProcessState;
+import de.upb.crc901.proseco.commons.processstatus.ProcessDeadline;
 import de.upb.crc901.proseco.commons.processstatus.ProcessStateProvider;
 import de.upb.crc901.proseco.commons.util.PROSECOProcessEnvironment;
 import de.upb.crc901.proseco.core.composition.StrategyExecutor;
@@ -43,7 +44,11 @@ public class CompositionAlgorithm implements Runnable {
 	/** Base folder for matching the availability of prototypes */
 	private final PROSECOProcessEnvironment executionEnvironment;
 
-	private final int timeoutInSeconds;
+	/** The time budget of the whole composition, from the preparation of the search up to the deployment */
+	private final ProcessDeadline deadline;
+
+	/** Version of the prototype's grounding for the grounding cache, determined before the search */
+	private String groundingVersion;
 
 	/**
 	 * Instantiate a new PrototypeBasedComposer for executing the prototype composition pipeline.
@@ -55,12 +60,22 @@ public class CompositionAlgorithm implements Runnable {
 	 * @throws Exception
 	 */
 	public CompositionAlgorithm(final PROSECOProcessEnvironment environment, final int timeoutInSeconds) {
+		this(environment, new ProcessDeadline(environment.getProcessId(), timeoutInSeconds * 1000L));
+	}
+
+	/**
+	 * Instantiate a new PrototypeBasedComposer whose phases share the given deadline. The times reserved for grounding and deployment are booked on the deadline, so the search ends early enough for them.
+	 */
+	public CompositionAlgorithm(final PROSECOProcessEnvironment environment, final ProcessDeadline deadline) {
 		this.executionEnvironment = environment;
-		this.timeoutInSeconds = timeoutInSeconds;
+		this.deadline = deadline;
+		this.deadline.reserve(EProcessState.GROUNDING, environment.getPrototypeConfig().getSecondsReservedForGrounding() * 1000L);
+		this.deadline.reserve(EProcessState.DEPLOYMENT, environment.getPrototypeConfig().getSecondsReservedForDeployment() * 1000L);
 	}
 
 	@Override
 	public void run() {
+		SpeculativeGrounding speculativeGrounding = null;
 		try {
 			/* serialize execution environment into the process folder */
 			File file = new File(this.executionEnvironment.getProcessDirectory() + File.separator + "proseco.conf");
@@ -95,78 +110,78 @@ public class CompositionAlgorithm implements Runnable {
 			/* execute hooks that should run prior to configuration */
 			this.beforeConfiguration();
 
+			/* the grounding may write into its folder, so its version for the cache is determined before any grounding runs */
+			GroundingCache groundingCache = GroundingCache.get(this.executionEnvironment.getProsecoConfig());
+			if (groundingCache != null) {
+				try {
+					this.groundingVersion = groundingCache.computeGroundingVersion(this.executionEnvironment);
+				} catch (IOException e) {
+					logger.warn("Could not determine the version of the grounding, not using the grounding cache: {}", e.getMessage());
+					groundingCache = null;
+				}
+			}
+
 			/* invoke strategies */
-			int secondsReservedForGrounding = this.executionEnvironment.getPrototypeConfig().getSecondsReservedForGrounding();
-			int secondsReservedForDeployment = this.executionEnvironment.getPrototypeConfig().getSecondsReservedForDeployment();
-			int timeout = Math.max(1, this.timeoutInSeconds - (secondsReservedForGrounding + secondsReservedForDeployment));
-			logger.debug("Create command for executing strategies and execute them with a timeout of {} = max(1, specifiedTimeout - (secondsForGrounding + secondsForDeployment)) = max(1, {} - ({} + {})) ...", timeout, this.timeoutInSeconds,
-					secondsReservedForGrounding, secondsReservedForDeployment);
+			this.deadline.startPhase(EProcessState.SEARCH_STRATEGIES);
+			logger.debug("Execute strategies with {}ms left for the search ({}ms reserved for grounding, {}ms for deployment) ...", this.deadline.getRemainingMS(EProcessState.SEARCH_STRATEGIES),
+					this.deadline.getReservationInMS(EProcessState.GROUNDING), this.deadline.getReservationInMS(EProcessState.DEPLOYMENT));
+			if (this.executionEnvironment.getPrototypeConfig().isSpeculativeGroundingEnabled() && !(GLOBAL_CONFIG.debugMode() && GLOBAL_CONFIG.debugDisableGrounding())) {
+				speculativeGrounding = new SpeculativeGrounding(this.executionEnvironment);
+			}
 			StrategyExecutor executeStrategiesCommand = new StrategyExecutor(this.executionEnvironment);
-			executeStrategiesCommand.execute(timeout * 1000);
+			executeStrategiesCommand.execute(this.deadline);
 			logger.info("Execution of strategies finished!");
 
 			/* execute hooks that should run after configuration */
 
-			/* determine strategy that delivered the best solution */
-			Optional<File> winningStrategy = Optional.empty();
-			double bestScoreSeen = Double.MAX_VALUE;
-			for (final File strategy : this.executionEnvironment.getStrategyDirectory().listFiles()) {
-				if (!strategy.isDirectory()) {
-					continue;
-				}
-				final File fValueFile = new File(this.executionEnvironment.getSearchOutputDirectory() + File.separator + strategy.getName() + File.separator + "score");
-				if (!fValueFile.exists()) {
-					logger.info("score file was not found in file {} for strategy {}", fValueFile.getAbsolutePath(), strategy.getName());
-					continue;
-				}
-				Double parsedValue = Double.parseDouble(FileUtils.readFileToString(fValueFile, Charset.defaultCharset()));
-				if (parsedValue < bestScoreSeen) {
-					winningStrategy = Optional.of(strategy);
-					bestScoreSeen = parsedValue;
-				}
-				logger.info("Strategy {} reports a solution performance of {}", strategy.getName(), parsedValue);
-			}
-			if (!winningStrategy.isPresent()) {
+			/* the strategy that delivered the best solution is already known from the scores tracked during the search */
+			IncumbentTracker incumbentTracker = executeStrategiesCommand.getIncumbentTracker();
+			incumbentTracker.poll();
+			if (!incumbentTracker.hasSolution()) {
 				logger.info("None of the strategies has found a solution.");
 				return;
 			}
-			logger.info("Identified {} as a winning strategy with score {}", winningStrategy.get(), bestScoreSeen);
+			String winningStrategy = incumbentTracker.getBestStrategy();
+			logger.info("Identified {} as a winning strategy with score {}", winningStrategy, incumbentTracker.getBestScore());
 
 			/* execute grounding routine */
-			ProcessStateProvider.setProcessStatus(this.executionEnvironment.getProcessId(), EProcessState.GROUNDING);
+			this.transition(EProcessState.GROUNDING, null);
+			this.deadline.startPhase(EProcessState.GROUNDING);
+			File finalDirectory = new File(this.executionEnvironment.getSearchOutputDirectory(), "final");
+			CandidateGrounding candidateGrounding = new CandidateGrounding(this.executionEnvironment);
+			List<String> fallbackCandidates = new ArrayList<>();
 			{
-				File groundingLog = new File(this.executionEnvironment.getGroundingDirectory() + File.separator + this.executionEnvironment.getProsecoConfig().getNameOfServiceLogFile());
-				String[] groundingCommand = new String[4];
-				groundingCommand[0] = this.executionEnvironment.groundingExecutable().getAbsolutePath();
-				groundingCommand[1] = this.executionEnvironment.getProcessId();
-				groundingCommand[2] = this.executionEnvironment.getSearchOutputDirectory().getAbsolutePath() + File.separator + winningStrategy.get().getName();
-				groundingCommand[3] = this.executionEnvironment.getSearchOutputDirectory().getAbsolutePath() + File.separator + "final";
-				new File(groundingCommand[0]).setExecutable(true);
-				final ProcessBuilder pb = new ProcessBuilder(groundingCommand).directory(this.executionEnvironment.getGroundingDirectory());
-				// pb.redirectOutput(Redirect.appendTo(groundingLog)).redirectError(Redirect.appendTo(groundingLog));
-				pb.redirectOutput(Redirect.INHERIT).redirectError(Redirect.INHERIT);
-				logger.info("Execute grounding command {}. Working directory is set to {}", Arrays.toString(groundingCommand), this.executionEnvironment.getGroundingDirectory());
+				int numberOfCandidates = this.executionEnvironment.getPrototypeConfig().getNumberOfGroundingCandidates();
 				if (GLOBAL_CONFIG.debugMode() && GLOBAL_CONFIG.debugDisableGrounding()) {
 					logger.warn("Grounding has been disabled for debugging! You can enable it in the GlobalConfig properties.");
-				} else {
-					pb.start().waitFor();
+				} else if (speculativeGrounding != null && speculativeGrounding.adopt(winningStrategy, finalDirectory)) {
+					logger.info("Adopted the speculative grounding of {}.", winningStrategy);
+					this.storeInCache(groundingCache, winningStrategy, finalDirectory);
+				} else if (groundingCache != null && this.restoreFromCache(groundingCache, winningStrategy, finalDirectory)) {
+					logger.info("Reused the cached grounding of {}.", winningStrategy);
+				} else if (numberOfCandidates > 1) {
+					List<String> ranking = incumbentTracker.getRanking();
+					fallbackCandidates.addAll(candidateGrounding.groundAndValidate(ranking.subList(0, Math.min(numberOfCandidates, ranking.size()))));
+					if (fallbackCandidates.isEmpty()) {
+						logger.warn("None of the groundings has passed validation, continuing with the grounding of the winner {}.", winningStrategy);
+						this.adoptCandidate(candidateGrounding, winningStrategy, finalDirectory);
+					} else {
+						String validatedStrategy = fallbackCandidates.remove(0);
+						this.adoptCandidate(candidateGrounding, validatedStrategy, finalDirectory);
+						this.storeInCache(groundingCache, validatedStrategy, finalDirectory);
+					}
+				} else if (startGrounding(this.executionEnvironment, winningStrategy, finalDirectory).waitFor() == 0) {
+					this.storeInCache(groundingCache, winningStrategy, finalDirectory);
 				}
 				logger.info("Grounding completed.");
 			}
 
-			/* deploy service. First determine available port. Then execute the deployment. */
-			ProcessStateProvider.setProcessStatus(this.executionEnvironment.getProcessId(), EProcessState.DEPLOYMENT);
+			/* deploy service. First lease a port for it. Then execute the deployment. */
+			this.transition(EProcessState.DEPLOYMENT, null);
+			this.deadline.startPhase(EProcessState.DEPLOYMENT);
 			String host = this.executionEnvironment.getPrototypeConfig().getDeploymentHost();
-			int port = this.executionEnvironment.getPrototypeConfig().getDeploymentMinPort();
-			boolean portIsAvailable = true;
-			do {
-				portIsAvailable = true;
-				try (Socket s = new Socket(host, port)) {
-					portIsAvailable = false;
-					port++;
-				} catch (IOException ex) {
-				}
-			} while (!portIsAvailable);
+			int port = PortAllocator.get().allocate(this.executionEnvironment.getProcessId(), this.executionEnvironment.getPrototypeConfig().getDeploymentMinPort(),
+					this.executionEnvironment.getPrototypeConfig().getDeploymentMaxPort());
 			String[] deploymentCommand = new String[4];
 			deploymentCommand[0] = this.executionEnvironment.deploymentExecutable().getAbsolutePath();
 			deploymentCommand[1] = this.executionEnvironment.getProcessId();
@@ -182,18 +197,40 @@ public class CompositionAlgorithm implements Runnable {
 				} else {
 					logger.warn("Deployment has been disabled for debugging! You can enable it in the GlobalConfig properties.");
 				}
+				PortAllocator.get().release(this.executionEnvironment.getProcessId());
 			} else {
-				pb.start().waitFor();
+				int exitCode = pb.start().waitFor();
+				while (exitCode != 0 && !fallbackCandidates.isEmpty()) {
+					String fallbackStrategy = fallbackCandidates.remove(0);
+					logger.warn("Deployment failed with exit code {}, deploying the grounding of {} instead.", exitCode, fallbackStrategy);
+					this.adoptCandidate(candidateGrounding, fallbackStrategy, finalDirectory);
+					exitCode = pb.start().waitFor();
+				}
+				if (exitCode != 0) {
+					/* the port may be leased to another composition right away, so no handle must point to it */
+					logger.warn("Deployment failed with exit code {}.", exitCode);
+					PortAllocator.get().release(this.executionEnvironment.getProcessId());
+					return;
+				}
+				PortAllocator.get().markDeployed(this.executionEnvironment.getProcessId());
 			}
 			logger.info("Deployment completed.");
 
 			/* create handle file */
-			FileUtils.writeStringToFile(this.executionEnvironment.getServiceHandle(), "http://" + deploymentCommand[2] + ":" + port + "/" + this.executionEnvironment.getPrototypeConfig().getDeploymentEntryPoint(), Charset.defaultCharset());
-			ProcessStateProvider.setProcessStatus(this.executionEnvironment.getProcessId(), EProcessState.DONE);
+			String serviceHandle = "http://" + deploymentCommand[2] + ":" + port + "/" + this.executionEnvironment.getPrototypeConfig().getDeploymentEntryPoint();
+			FileUtils.writeStringToFile(this.executionEnvironment.getServiceHandle(), serviceHandle, Charset.defaultCharset());
+			this.transition(EProcessState.DONE, serviceHandle);
 
 		} catch (Exception e) {
 			e.printStackTrace();
 		} finally {
+			if (speculativeGrounding != null) {
+				speculativeGrounding.close();
+			}
+			/* grounding has consumed the ranking, so only a summary of the search result is kept */
+			IncumbentTracker.remove(this.executionEnvironment.getProcessId());
+			this.deadline.endPhase(EProcessState.DEPLOYMENT);
+			this.reportPhases();
 
 			/* clean up workspace */
 			if (false && this.executionEnvironment.getProsecoConfig().isFinalCleanupEnabled()) {
@@ -212,6 +249,84 @@ public class CompositionAlgorithm implements Runnable {
 	protected void beforeConfiguration() {
 	}
 
+	/**
+	 * Starts the grounding routine of the prototype for the output of the given strategy.
+	 */
+	static Process startGrounding(final PROSECOProcessEnvironment environment, final String strategyName, final File targetDirectory) throws IOException {
+		File groundingLog = new File(environment.getGroundingDirectory() + File.separator + environment.getProsecoConfig().getNameOfServiceLogFile());
+		String[] groundingCommand = new String[4];
+		groundingCommand[0] = environment.groundingExecutable().getAbsolutePath();
+		groundingCommand[1] = environment.getProcessId();
+		groundingCommand[2] = environment.getSearchOutputDirectory().getAbsolutePath() + File.separator + strategyName;
+		groundingCommand[3] = targetDirectory.getAbsolutePath();
+		new File(groundingCommand[0]).setExecutable(true);
+		final ProcessBuilder pb = new ProcessBuilder(groundingCommand).directory(environment.getGroundingDirectory());
+		// pb.redirectOutput(Redirect.appendTo(groundingLog)).redirectError(Redirect.appendTo(groundingLog));
+		pb.redirectOutput(Redirect.INHERIT).redirectError(Redirect.INHERIT);
+		logger.info("Execute grounding command {}. Working directory is set to {}", Arrays.toString(groundingCommand), environment.getGroundingDirectory());
+		return pb.start();
+	}
+
+	/**
+	 * Copies the cached grounding of the given strategy's solution into the final folder, if there is one.
+	 */
+	private boolean restoreFromCache(final GroundingCache groundingCache, final String strategyName, final File finalDirectory) {
+		try {
+			return groundingCache.restore(groundingCache.computeKey(this.executionEnvironment, this.groundingVersion, strategyName), finalDirectory);
+		} catch (IOException e) {
+			logger.warn("Could not look up the grounding of {} in the cache: {}", strategyName, e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Adds the final grounding of the given strategy's solution to the cache. The cache is only a shortcut, so failures are logged and otherwise ignored.
+	 */
+	private void storeInCache(final GroundingCache groundingCache, final String strategyName, final File finalDirectory) {
+		if (groundingCache == null) {
+			return;
+		}
+		try {
+			groundingCache.store(groundingCache.computeKey(this.executionEnvironment, this.groundingVersion, strategyName), finalDirectory);
+		} catch (IOException e) {
+			logger.warn("Could not add the grounding of {} to the cache: {}", strategyName, e.getMessage());
+		}
+	}
+
+	/**
+	 * Makes the grounding of the given candidate the final one.
+	 */
+	private void adoptCandidate(final CandidateGrounding candidateGrounding, final String strategyName, final File finalDirectory) throws IOException {
+		File candidateDirectory = candidateGrounding.getDirectory(strategyName);
+		FileUtils.deleteDirectory(finalDirectory);
+		if (candidateDirectory.exists()) {
+			FileUtils.moveDirectory(candidateDirectory, finalDirectory);
+		}
+		logger.info("Using the grounding of {}.", strategyName);
+	}
+
+	/**
+	 * Logs how long each phase took and warns about phases that used more time than was left for them.
+	 */
+	private void reportPhases() {
+		Map<EProcessState, Long> durations = this.deadline.getPhaseDurationsInMS();
+		logger.info("Phase report of {}: {} ({}ms of the budget left)", this.executionEnvironment.getProcessId(), durations, this.deadline.getRemainingMS());
+		for (EProcessState reservedPhase : Arrays.asList(EProcessState.GROUNDING, EProcessState.DEPLOYMENT)) {
+			Long duration = durations.get(reservedPhase);
+			long reservation = this.deadline.getReservationInMS(reservedPhase);
+			if (duration != null && duration > reservation) {
+				logger.warn("Phase {} took {}ms, but only {}ms were reserved for it.", reservedPhase, duration, reservation);
+			}
+		}
+	}
+
+	/**
+	 * Moves the process to the given state; the listeners of the {@link ProcessStateProvider} are notified of the transition.
+	 */
+	private void transition(final EProcessState newState, final String serviceHandle) throws Exception {
+		ProcessStateProvider.setProcessStatus(this.executionEnvironment.getProcessId(), newState, serviceHandle);
+	}
+
 	/**
 	 * Extract prototypeName of prototypeName-Id pair
 	 *
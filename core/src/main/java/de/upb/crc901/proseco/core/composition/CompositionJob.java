@@ -0,0 +1,59 @@
+package de.upb.crc901.proseco.core.composition;
+
+/**
+ * A composition that waits for or is being executed by the {@link CompositionJobScheduler}.
+ *
+ * Jobs with a higher priority are started first; jobs of equal priority are started in the order of their submission.
+ */
+public class CompositionJob implements Comparable<CompositionJob> {
+
+	private final String processId;
+	private final Runnable task;
+	private final int priority;
+	private final long submissionTime;
+	private long sequenceNumber;
+
+	public CompositionJob(final String processId, final Runnable task) {
+		this(processId, task, 0);
+	}
+
+	public CompositionJob(final String processId, final Runnable task, final int priority) {
+		this.processId = processId;
+		this.task = task;
+		this.priority = priority;
+		this.submissionTime = System.currentTimeMillis();
+	}
+
+	public String getProcessId() {
+		return this.processId;
+	}
+
+	public Runnable getTask() {
+		return this.task;
+	}
+
+	public int getPriority() {
+		return this.priority;
+	}
+
+	public long getSubmissionTime() {
+		return this.submissionTime;
+	}
+
+	void setSequenceNumber(final long sequenceNumber) {
+		this.sequenceNumber = sequenceNumber;
+	}
+
+	@Override
+	public int compareTo(final CompositionJob o) {
+		if (this.priority != o.priority) {
+			return Integer.compare(o.priority, this.priority);
+		}
+		return Long.compare(this.sequenceNumber, o.sequenceNumber);
+	}
+
+	@Override
+	public String toString() {
+		return "CompositionJob [processId=" + this.processId + ", priority=" + this.priority + "]";
+	}
+}
@@ -0,0 +1,133 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs compositions with a global limit on the number of compositions executed at the same time.
+ *
+ * Since every composition starts its own strategy processes, starting all of them immediately would oversubscribe the machine as soon as several users finish their interviews at once. Jobs exceeding the limit wait in a priority queue (FIFO within the same priority); if the queue is full, new jobs are rejected.
+ */
+public class CompositionJobScheduler {
+
+	private static final Logger L = LoggerFactory.getLogger(CompositionJobScheduler.class);
+
+	/** Queue position reported for jobs that are currently being executed */
+	public static final int RUNNING = 0;
+
+	/** Queue position reported for jobs that are unknown to the scheduler, e.g. because they have already finished */
+	public static final int UNKNOWN = -1;
+
+	private final int maxConcurrentJobs;
+	private final int maxQueuedJobs;
+
+	private final PriorityQueue<CompositionJob> queue = new PriorityQueue<>();
+	private final Map<String, CompositionJob> runningJobs = new ConcurrentHashMap<>();
+	private long nextSequenceNumber = 0;
+
+	private final ExecutorService workers;
+
+	public CompositionJobScheduler(final int maxConcurrentJobs, final int maxQueuedJobs) {
+		this.maxConcurrentJobs = Math.max(1, maxConcurrentJobs);
+		this.maxQueuedJobs = Math.max(0, maxQueuedJobs);
+		AtomicInteger threadCounter = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(this.maxConcurrentJobs, r -> {
+			Thread t = new Thread(r, "composition-worker-" + threadCounter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Admits the job to the queue.
+	 *
+	 * @return <code>false</code> if the job has been rejected because the queue is full.
+	 */
+	public synchronized boolean submit(final CompositionJob job) {
+		/* jobs for which a worker is free are only in the queue until the worker picks them up */
+		int waitingJobs = this.queue.size() - Math.max(0, this.maxConcurrentJobs - this.runningJobs.size());
+		if (waitingJobs >= this.maxQueuedJobs) {
+			L.warn("Rejecting {}: {} compositions are running and {} are waiting.", job, this.runningJobs.size(), this.queue.size());
+			return false;
+		}
+		job.setSequenceNumber(this.nextSequenceNumber++);
+		this.queue.add(job);
+		L.info("Admitted {} at queue position {}.", job, this.getQueuePosition(job.getProcessId()));
+
+		/* each job contributes exactly one worker task, which runs whatever job is at the head of the queue at that time */
+		this.workers.execute(this::runNextJob);
+		return true;
+	}
+
+	/**
+	 * Removes a job that has not been started yet from the queue.
+	 *
+	 * @return <code>true</code> if the job was still waiting.
+	 */
+	public synchronized boolean cancel(final String processId) {
+		return this.queue.removeIf(job -> job.getProcessId().equals(processId));
+	}
+
+	/**
+	 * @return The 1-based position of the job of the given process in the queue, {@link #RUNNING} if it is being executed, or {@link #UNKNOWN}.
+	 */
+	public synchronized int getQueuePosition(final String processId) {
+		if (this.runningJobs.containsKey(processId)) {
+			return RUNNING;
+		}
+		List<CompositionJob> waitingJobs = new ArrayList<>(this.queue);
+		Collections.sort(waitingJobs);
+		for (int i = 0; i < waitingJobs.size(); i++) {
+			if (waitingJobs.get(i).getProcessId().equals(processId)) {
+				return i + 1;
+			}
+		}
+		return UNKNOWN;
+	}
+
+	public synchronized int getNumberOfQueuedJobs() {
+		return this.queue.size();
+	}
+
+	public int getNumberOfRunningJobs() {
+		return this.runningJobs.size();
+	}
+
+	public int getMaxConcurrentJobs() {
+		return this.maxConcurrentJobs;
+	}
+
+	public void shutdown() {
+		this.workers.shutdownNow();
+	}
+
+	private void runNextJob() {
+		CompositionJob job;
+		synchronized (this) {
+			job = this.queue.poll();
+			if (job == null) {
+				/* the job of this task has been cancelled */
+				return;
+			}
+			this.runningJobs.put(job.getProcessId(), job);
+		}
+		L.info("Starting {} after waiting {}ms.", job, System.currentTimeMillis() - job.getSubmissionTime());
+		try {
+			job.getTask().run();
+		} catch (RuntimeException e) {
+			L.error("Composition job {} failed.", job, e);
+		} finally {
+			this.runningJobs.remove(job.getProcessId());
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package de.upb.crc901.proseco.core.composition;
+
+import de.upb.crc901.proseco.commons.config.PrototypeConfig;
+
+/**
+ * Decides whether the search can be ended before the timeout, based on the incumbent of an {@link IncumbentTracker}.
+ *
+ * The search is stopped as soon as one of the configured criteria holds: the incumbent reaches the target score, any solution has been found, or the incumbent has not improved for a given time.
+ */
+public class EarlyStopPolicy {
+
+	private final double targetScore;
+	private final boolean stopOnFirstSolution;
+	private final long maxStagnationInMS;
+
+	public EarlyStopPolicy(final double targetScore, final boolean stopOnFirstSolution, final long maxStagnationInMS) {
+		this.targetScore = targetScore;
+		this.stopOnFirstSolution = stopOnFirstSolution;
+		this.maxStagnationInMS = maxStagnationInMS;
+	}
+
+	public static EarlyStopPolicy fromConfig(final PrototypeConfig config) {
+		return new EarlyStopPolicy(config.getTargetScore(), config.isStopOnFirstSolutionEnabled(), config.getMaxStagnationInSeconds() * 1000L);
+	}
+
+	/**
+	 * @return Whether any of the criteria is configured at all.
+	 */
+	public boolean isEnabled() {
+		return !Double.isNaN(this.targetScore) || this.stopOnFirstSolution || this.maxStagnationInMS > 0;
+	}
+
+	/**
+	 * @return The reason for stopping, or <code>null</code> if the search should go on.
+	 */
+	public String getStopReason(final IncumbentTracker tracker, final long now) {
+		if (!tracker.hasSolution()) {
+			return null;
+		}
+		if (!Double.isNaN(this.targetScore) && tracker.getBestScore() <= this.targetScore) {
+			return "target score " + this.targetScore + " has been reached with " + tracker.getBestScore();
+		}
+		if (this.stopOnFirstSolution) {
+			return "a solution has been found";
+		}
+		if (this.maxStagnationInMS > 0 && now - tracker.getLastImprovementTime() >= this.maxStagnationInMS) {
+			return "the incumbent has not improved for " + (now - tracker.getLastImprovementTime()) + "ms";
+		}
+		return null;
+	}
+}
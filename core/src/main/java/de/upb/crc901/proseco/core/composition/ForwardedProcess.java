@@ -0,0 +1,185 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.console.ConsoleRecordFormat;
+import de.upb.crc901.proseco.commons.console.EConsoleStream;
+
+/**
+ * A strategy process whose console output is forwarded by a {@link StrategyLogForwarder}.
+ *
+ * Standard output is copied to the out and all files, the error output is framed with <b> $_( </b> and <b> )_$ </b> and copied to the err and all files. In record mode, each chunk of either stream is instead written once to a single
+ * record-framed log (see {@link ConsoleRecordFormat}). Both streams are also passed to the {@link StrategyOutputBroadcaster}. Once
+ * the process has terminated and its pipes are drained, or once it has been detached, the files are closed and the termination callback is run exactly once.
+ */
+public class ForwardedProcess {
+
+	private static final Logger L = LoggerFactory.getLogger(ForwardedProcess.class);
+
+	private final String processId;
+	private final String strategyName;
+	private final Process process;
+	private final InputStream stdOut;
+	private final InputStream stdErr;
+	private final OutputStream outFile;
+	private final OutputStream errFile;
+	private final OutputStream allFile;
+	private final OutputStream recordFile;
+	private final Runnable onTermination;
+
+	private volatile boolean detached = false;
+	private final AtomicBoolean finished = new AtomicBoolean(false);
+
+	ForwardedProcess(final String processId, final String strategyName, final Process process, final OutputStream outFile, final OutputStream errFile, final OutputStream allFile, final Runnable onTermination) {
+		this(processId, strategyName, process, outFile, errFile, allFile, null, onTermination);
+	}
+
+	ForwardedProcess(final String processId, final String strategyName, final Process process, final OutputStream recordFile, final Runnable onTermination) {
+		this(processId, strategyName, process, null, null, null, recordFile, onTermination);
+	}
+
+	private ForwardedProcess(final String processId, final String strategyName, final Process process, final OutputStream outFile, final OutputStream errFile, final OutputStream allFile, final OutputStream recordFile,
+			final Runnable onTermination) {
+		this.processId = processId;
+		this.strategyName = strategyName;
+		this.process = process;
+		this.stdOut = process.getInputStream();
+		this.stdErr = process.getErrorStream();
+		this.outFile = outFile;
+		this.errFile = errFile;
+		this.allFile = allFile;
+		this.recordFile = recordFile;
+		this.onTermination = onTermination;
+	}
+
+	public String getProcessId() {
+		return this.processId;
+	}
+
+	public String getStrategyName() {
+		return this.strategyName;
+	}
+
+	public Process getProcess() {
+		return this.process;
+	}
+
+	/**
+	 * Stops forwarding the output of the process, e.g. because its time is over. The process itself is not affected.
+	 */
+	public void detach() {
+		this.detached = true;
+	}
+
+	public boolean isFinished() {
+		return this.finished.get();
+	}
+
+	/**
+	 * Forwards at most one chunk per stream without blocking.
+	 *
+	 * @param frame
+	 *            Buffer of the calling pump thread; it is large enough for one chunk plus the error markers.
+	 * @return <code>true</code> if any bytes have been forwarded.
+	 */
+	boolean pump(final byte[] frame) {
+		if (this.finished.get()) {
+			return false;
+		}
+		if (this.detached) {
+			this.finish();
+			return false;
+		}
+		try {
+			boolean exited = !this.process.isAlive();
+			boolean forwarded = this.pumpStream(this.stdOut, EConsoleStream.OUT, frame) | this.pumpStream(this.stdErr, EConsoleStream.ERR, frame);
+			if (exited && !forwarded) {
+				/* the process was dead before we looked at the pipes, and they were empty */
+				this.finish();
+			}
+			return forwarded;
+		} catch (IOException e) {
+			L.warn("Could not forward output of strategy {}: {}", this.strategyName, e.getMessage());
+			this.finish();
+			return false;
+		}
+	}
+
+	private boolean pumpStream(final InputStream in, final EConsoleStream stream, final byte[] frame) throws IOException {
+		int available = in.available();
+		if (available <= 0) {
+			return false;
+		}
+
+		/* the chunk is read directly behind the space for the record header or the opening marker, so framing needs neither allocation nor copying */
+		int maxRead = Math.min(available, frame.length - ConsoleRecordFormat.HEADER_LENGTH - ConsoleRecordFormat.ERROR_MARKER_END.length);
+		if (this.recordFile != null) {
+			int read = in.read(frame, ConsoleRecordFormat.HEADER_LENGTH, maxRead);
+			if (read <= 0) {
+				return false;
+			}
+			ConsoleRecordFormat.writeHeader(frame, 0, stream, System.currentTimeMillis(), read);
+			this.recordFile.write(frame, 0, ConsoleRecordFormat.HEADER_LENGTH + read);
+			StrategyOutputBroadcaster.broadcast(this.processId, this.strategyName, stream, frame, ConsoleRecordFormat.HEADER_LENGTH, read);
+			return true;
+		}
+
+		if (stream == EConsoleStream.OUT) {
+			int read = in.read(frame, 0, maxRead);
+			if (read <= 0) {
+				return false;
+			}
+			this.outFile.write(frame, 0, read);
+			this.allFile.write(frame, 0, read);
+			StrategyOutputBroadcaster.broadcast(this.processId, this.strategyName, stream, frame, 0, read);
+			return true;
+		}
+
+		int markerLength = ConsoleRecordFormat.ERROR_MARKER_START.length;
+		System.arraycopy(ConsoleRecordFormat.ERROR_MARKER_START, 0, frame, 0, markerLength);
+		int read = in.read(frame, markerLength, maxRead);
+		if (read <= 0) {
+			return false;
+		}
+		System.arraycopy(ConsoleRecordFormat.ERROR_MARKER_END, 0, frame, markerLength + read, ConsoleRecordFormat.ERROR_MARKER_END.length);
+		int frameLength = markerLength + read + ConsoleRecordFormat.ERROR_MARKER_END.length;
+		this.errFile.write(frame, 0, frameLength);
+		this.allFile.write(frame, 0, frameLength);
+		StrategyOutputBroadcaster.broadcast(this.processId, this.strategyName, stream, frame, markerLength, read);
+		return true;
+	}
+
+	private void finish() {
+		if (!this.finished.compareAndSet(false, true)) {
+			return;
+		}
+		StrategyOutputBroadcaster.broadcastClose(this.processId, this.strategyName, EConsoleStream.OUT);
+		StrategyOutputBroadcaster.broadcastClose(this.processId, this.strategyName, EConsoleStream.ERR);
+		for (OutputStream file : new OutputStream[] { this.outFile, this.errFile, this.allFile, this.recordFile }) {
+			if (file == null) {
+				continue;
+			}
+			try {
+				file.close();
+			} catch (IOException e) {
+				L.warn("Could not close console file of strategy {}: {}", this.strategyName, e.getMessage());
+			}
+		}
+		try {
+			this.onTermination.run();
+		} catch (RuntimeException e) {
+			L.error("Termination callback of strategy {} failed.", this.strategyName, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ForwardedProcess [processId=" + this.processId + ", strategyName=" + this.strategyName + "]";
+	}
+}
@@ -0,0 +1,272 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.config.PROSECOConfig;
+import de.upb.crc901.proseco.commons.util.PROSECOProcessEnvironment;
+
+/**
+ * Node-wide cache of grounded solutions, so the grounding routine does not have to run again for a solution that has been grounded before.
+ *
+ * Entries are addressed by a SHA-256 hash over the output of the winning strategy (without the console and resource files written by PROSECO), the search inputs and the version of the grounding. The version is a hash over
+ * the prototype config and either the version file declared by the prototype or the content of the grounding folder without build output. Changing a template or source of the grounding therefore invalidates the entries
+ * of a prototype. As the grounding may write into its folder, the version has to be determined before any grounding of the composition runs. A hit is copied into the final folder, so the deployment cannot alter the cached entry. When the cache exceeds its
+ * disk budget, the least recently used entries are evicted.
+ *
+ * The cache must only be enabled for prototypes whose grounding depends on nothing but these inputs; in particular, the grounded solution must not contain the id of the process.
+ */
+public class GroundingCache {
+
+	private static final Logger L = LoggerFactory.getLogger(GroundingCache.class);
+
+	private static final String TEMP_PREFIX = ".tmp-";
+
+	/* folders holding build output of the grounding, which must not change its version */
+	private static final Set<String> BUILD_OUTPUT = new HashSet<>(Arrays.asList("build", "target", "bin", "out", ".gradle"));
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static GroundingCache instance;
+
+	private final File cacheDirectory;
+	private final long budgetInBytes;
+
+	/**
+	 * @return The grounding cache of this node, or <code>null</code> if it is disabled. It is created from the given config on first access; later calls share this instance.
+	 */
+	public static synchronized GroundingCache get(final PROSECOConfig config) {
+		if (config.getGroundingCacheSizeInMB() <= 0) {
+			return null;
+		}
+		if (instance == null) {
+			instance = new GroundingCache(config.getDirectoryForGroundingCache(), config.getGroundingCacheSizeInMB() * 1024 * 1024);
+		}
+		return instance;
+	}
+
+	public GroundingCache(final File cacheDirectory, final long budgetInBytes) {
+		this.cacheDirectory = cacheDirectory.getAbsoluteFile();
+		this.budgetInBytes = budgetInBytes;
+	}
+
+	/**
+	 * @return The version of the prototype's grounding routine.
+	 */
+	public String computeGroundingVersion(final PROSECOProcessEnvironment environment) throws IOException {
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		digest.update(environment.getPrototypeName().getBytes(StandardCharsets.UTF_8));
+		updateDigest(digest, buffer, new File(environment.getPrototypeDirectory(), "prototype.conf"));
+		String versionFile = environment.getPrototypeConfig().getGroundingVersionFile();
+		if (!versionFile.isEmpty()) {
+			updateDigest(digest, buffer, new File(environment.getPrototypeDirectory(), versionFile));
+		} else {
+			/* the grounding folder may be the prototype folder itself, so the strategies and benchmarks are skipped as well */
+			Set<File> excludedDirectories = new HashSet<>();
+			excludedDirectories.add(environment.getStrategyDirectory().getCanonicalFile());
+			excludedDirectories.add(environment.getBenchmarksDirectory().getCanonicalFile());
+			File groundingDirectory = environment.getGroundingDirectory().getCanonicalFile();
+			String serviceLog = environment.getProsecoConfig().getNameOfServiceLogFile();
+			updateDigest(digest, buffer, groundingDirectory, p -> (p.getNameCount() == 1 && p.toString().equals(serviceLog)) || isBuildOutput(groundingDirectory, p, excludedDirectories));
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * @param groundingVersion
+	 *            The version of the grounding as of {@link #computeGroundingVersion(PROSECOProcessEnvironment)}.
+	 * @return The key of the grounding of the given strategy's solution.
+	 */
+	public String computeKey(final PROSECOProcessEnvironment environment, final String groundingVersion, final String strategyName) throws IOException {
+		PROSECOConfig config = environment.getProsecoConfig();
+		Set<String> excludedFiles = new HashSet<>(Arrays.asList(config.getSystemOutFileName(), config.getSystemErrFileName(), config.getSystemMergedOutputFileName(), config.getConsoleRecordFileName(),
+				StrategyResourceMonitor.RESOURCES_FILE));
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		digest.update(groundingVersion.getBytes(StandardCharsets.US_ASCII));
+		updateDigest(digest, buffer, environment.getSearchInputDirectory(), p -> false);
+		updateDigest(digest, buffer, environment.getSearchStrategyOutputDirectory(strategyName), p -> isConsoleFile(p, excludedFiles));
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Copies the cached grounding with the given key into the target folder.
+	 *
+	 * @return <code>true</code> on a hit.
+	 */
+	public boolean restore(final String key, final File targetDirectory) throws IOException {
+		File entry = new File(this.cacheDirectory, key);
+		synchronized (this) {
+			if (!entry.isDirectory()) {
+				return false;
+			}
+			/* the modification time of an entry is the time of its last use */
+			entry.setLastModified(System.currentTimeMillis());
+		}
+		File tempDirectory = new File(targetDirectory.getParentFile(), TEMP_PREFIX + UUID.randomUUID());
+		try {
+			FileUtils.copyDirectory(entry, tempDirectory);
+		} catch (IOException e) {
+			/* the entry may have been evicted in the meantime */
+			FileUtils.deleteQuietly(tempDirectory);
+			L.warn("Could not restore grounding {} from the cache: {}", key, e.getMessage());
+			return false;
+		}
+		FileUtils.deleteDirectory(targetDirectory);
+		FileUtils.moveDirectory(tempDirectory, targetDirectory);
+		L.info("Restored grounding {} from the cache.", key);
+		return true;
+	}
+
+	/**
+	 * Adds a grounded solution to the cache and evicts the least recently used entries if the cache exceeds its budget.
+	 */
+	public void store(final String key, final File groundedDirectory) throws IOException {
+		if (!groundedDirectory.isDirectory()) {
+			return;
+		}
+		File entry = new File(this.cacheDirectory, key);
+		if (entry.isDirectory()) {
+			return;
+		}
+		long size = FileUtils.sizeOfDirectory(groundedDirectory);
+		if (size > this.budgetInBytes) {
+			L.info("Grounding {} with {} bytes exceeds the budget of the cache.", key, size);
+			return;
+		}
+
+		/* copy first, so readers never see an incomplete entry */
+		File tempDirectory = new File(this.cacheDirectory, TEMP_PREFIX + key + "-" + UUID.randomUUID());
+		FileUtils.copyDirectory(groundedDirectory, tempDirectory);
+		synchronized (this) {
+			if (entry.isDirectory()) {
+				FileUtils.deleteDirectory(tempDirectory);
+				return;
+			}
+			Files.move(tempDirectory.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			entry.setLastModified(System.currentTimeMillis());
+			L.info("Stored grounding {} with {} bytes in the cache.", key, size);
+			this.evict();
+		}
+	}
+
+	private void evict() {
+		File[] entries = this.cacheDirectory.listFiles(f -> f.isDirectory() && !f.getName().startsWith(TEMP_PREFIX));
+		if (entries == null) {
+			return;
+		}
+		List<File> leastRecentlyUsedFirst = new ArrayList<>(Arrays.asList(entries));
+		leastRecentlyUsedFirst.sort(Comparator.comparingLong(File::lastModified));
+		long total = 0;
+		for (File entry : leastRecentlyUsedFirst) {
+			total += FileUtils.sizeOfDirectory(entry);
+		}
+		for (File entry : leastRecentlyUsedFirst) {
+			if (total <= this.budgetInBytes) {
+				break;
+			}
+			long size = FileUtils.sizeOfDirectory(entry);
+			FileUtils.deleteQuietly(entry);
+			total -= size;
+			L.debug("Evicted grounding {} from the cache.", entry.getName());
+		}
+	}
+
+	private static MessageDigest newDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static String toHex(final byte[] hash) {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : hash) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Adds the relative paths and contents of all files in the directory to the digest, skipping the files for which the filter on their relative path holds.
+	 */
+	private static void updateDigest(final MessageDigest digest, final byte[] buffer, final File directory, final Predicate<Path> excluded) throws IOException {
+		if (!directory.isDirectory()) {
+			return;
+		}
+		Path root = directory.toPath();
+		List<Path> files;
+		try (Stream<Path> walk = Files.walk(root)) {
+			files = walk.filter(Files::isRegularFile).filter(p -> !excluded.test(root.relativize(p))).sorted().collect(Collectors.toList());
+		}
+		for (Path file : files) {
+			digest.update(root.relativize(file).toString().replace(File.separatorChar, '/').getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			updateDigest(digest, buffer, file.toFile());
+		}
+	}
+
+	/**
+	 * Console files are excluded at the top level of the strategy output together with their rotated segments.
+	 */
+	private static boolean isConsoleFile(final Path relativePath, final Set<String> excludedFiles) {
+		if (relativePath.getNameCount() != 1) {
+			return false;
+		}
+		String name = relativePath.toString();
+		for (String excludedFile : excludedFiles) {
+			if (name.equals(excludedFile) || name.startsWith(excludedFile + ".")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isBuildOutput(final File groundingDirectory, final Path relativePath, final Set<File> excludedDirectories) {
+		File directory = groundingDirectory;
+		for (int i = 0; i < relativePath.getNameCount() - 1; i++) {
+			String name = relativePath.getName(i).toString();
+			directory = new File(directory, name);
+			if (BUILD_OUTPUT.contains(name) || excludedDirectories.contains(directory)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void updateDigest(final MessageDigest digest, final byte[] buffer, final File file) throws IOException {
+		if (!file.isFile()) {
+			digest.update((byte) -1);
+			return;
+		}
+		digest.update(String.valueOf(file.length()).getBytes(StandardCharsets.US_ASCII));
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, read);
+			}
+		}
+	}
+}
@@ -0,0 +1,321 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.util.PROSECOProcessEnvironment;
+
+/**
+ * A Java search strategy that runs on its own threads inside the PROSECO JVM instead of a separate process. It is presented as a {@link Process}, so it is started, forwarded and terminated by the {@link StrategyExecutor}
+ * like any other strategy.
+ *
+ * The strategy class is loaded from the strategy folder with a class loader of its own, which is discarded afterwards, and shares the already parsed {@link PROSECOProcessEnvironment}. Everything the threads of the
+ * strategy write to {@link System#out} and {@link System#err} goes to the pipes of this process. The strategy has terminated once its main thread and all non-daemon threads it started have ended. Terminating it interrupts
+ * its threads, so only trusted strategies that honour interrupts should be run this way.
+ */
+public class InProcessStrategy extends Process {
+
+	private static final Logger L = LoggerFactory.getLogger(InProcessStrategy.class);
+
+	private static final int PIPE_SIZE = 64 * 1024;
+
+	/* properties of the descriptor in the strategy folder */
+	private static final String CLASS_PROPERTY = "class";
+	private static final String CLASSPATH_PROPERTY = "classpath";
+	private static final String DEFAULT_CLASSPATH = "lib";
+
+	private final ThreadGroup threads;
+	private final Pipe out = new Pipe();
+	private final Pipe err = new Pipe();
+	private final CountDownLatch terminated = new CountDownLatch(1);
+	private volatile int exitValue = 1;
+
+	private InProcessStrategy(final String strategyName) {
+		this.threads = new ThreadGroup("strategy-" + strategyName);
+	}
+
+	/**
+	 * Starts the strategy described by the given descriptor, a properties file in the strategy folder that names the strategy <code>class</code> and its <code>classpath</code> (comma-separated files and folders relative to
+	 * the strategy folder; the jars in a folder are included).
+	 *
+	 * @param strategyArguments
+	 *            The arguments of the strategy, i.e. process folder, input folder, output folder and timeout in seconds.
+	 * @param deadline
+	 *            Point in time (as of {@link System#currentTimeMillis()}) by which the strategy has to be done.
+	 */
+	public static InProcessStrategy start(final File descriptor, final String[] strategyArguments, final PROSECOProcessEnvironment environment, final long deadline) throws IOException {
+		Properties properties = new Properties();
+		try (InputStream in = new FileInputStream(descriptor)) {
+			properties.load(in);
+		}
+		String className = properties.getProperty(CLASS_PROPERTY);
+		if (className == null || className.trim().isEmpty()) {
+			throw new IOException("In-process descriptor " + descriptor + " does not name a strategy class.");
+		}
+		File strategyDirectory = descriptor.getAbsoluteFile().getParentFile();
+		URLClassLoader loader = new URLClassLoader(getClassPath(strategyDirectory, properties.getProperty(CLASSPATH_PROPERTY, DEFAULT_CLASSPATH)), SearchStrategy.class.getClassLoader());
+
+		ThreadConsole.install();
+		InProcessStrategy strategy = new InProcessStrategy(strategyDirectory.getName());
+		ThreadConsole.bind(strategy.threads, strategy.out.sink, strategy.err.sink);
+		Thread main = new Thread(strategy.threads, () -> strategy.run(loader, className.trim(), strategyArguments, environment, deadline), strategy.threads.getName() + "-main");
+		main.setContextClassLoader(loader);
+		main.start();
+		return strategy;
+	}
+
+	private void run(final URLClassLoader loader, final String className, final String[] strategyArguments, final PROSECOProcessEnvironment environment, final long deadline) {
+		SearchStrategy strategy = null;
+		try {
+			SearchStrategy.IN_PROCESS_ENVIRONMENT.set(environment);
+			SearchStrategy.IN_PROCESS_DEADLINE.set(deadline);
+			try {
+				strategy = Class.forName(className, true, loader).asSubclass(SearchStrategy.class).getConstructor(String[].class).newInstance((Object) strategyArguments.clone());
+			} finally {
+				SearchStrategy.IN_PROCESS_ENVIRONMENT.remove();
+				SearchStrategy.IN_PROCESS_DEADLINE.remove();
+			}
+			strategy.run();
+			this.awaitOtherThreads();
+			this.exitValue = 0;
+		} catch (InvocationTargetException e) {
+			e.getCause().printStackTrace();
+		} catch (InterruptedException e) {
+			System.err.println("Strategy has been interrupted while waiting for its threads.");
+		} catch (Exception | LinkageError e) {
+			e.printStackTrace();
+		} finally {
+			if (strategy != null) {
+				strategy.closeCandidateEventBuffer();
+			}
+			ThreadConsole.unbind(this.threads);
+			try {
+				loader.close();
+			} catch (IOException e) {
+				L.warn("Could not close class loader of {}: {}", this.threads.getName(), e.getMessage());
+			}
+			this.out.close();
+			this.err.close();
+			this.terminated.countDown();
+		}
+	}
+
+	/**
+	 * Waits for the non-daemon threads started by the strategy, just like a JVM would before exiting.
+	 */
+	private void awaitOtherThreads() throws InterruptedException {
+		boolean joined;
+		do {
+			joined = false;
+			Thread[] active = new Thread[this.threads.activeCount() + 1];
+			int count = this.threads.enumerate(active);
+			for (int i = 0; i < count; i++) {
+				if (active[i] != Thread.currentThread() && !active[i].isDaemon()) {
+					active[i].join();
+					joined = true;
+				}
+			}
+		} while (joined);
+	}
+
+	private static URL[] getClassPath(final File strategyDirectory, final String classPath) throws IOException {
+		List<URL> urls = new ArrayList<>();
+		for (String entry : classPath.split(",")) {
+			if (entry.trim().isEmpty()) {
+				continue;
+			}
+			File file = new File(strategyDirectory, entry.trim());
+			if (!file.exists()) {
+				L.warn("Class path entry {} of strategy {} does not exist.", file, strategyDirectory.getName());
+				continue;
+			}
+			urls.add(file.toURI().toURL());
+			File[] jars = file.isDirectory() ? file.listFiles(f -> f.isFile() && f.getName().endsWith(".jar")) : null;
+			if (jars != null) {
+				Arrays.sort(jars);
+				for (File jar : jars) {
+					urls.add(jar.toURI().toURL());
+				}
+			}
+		}
+		return urls.toArray(new URL[urls.size()]);
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return NullOutputStream.NULL_OUTPUT_STREAM;
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return this.out.source;
+	}
+
+	@Override
+	public InputStream getErrorStream() {
+		return this.err.source;
+	}
+
+	@Override
+	public int waitFor() throws InterruptedException {
+		this.terminated.await();
+		return this.exitValue;
+	}
+
+	@Override
+	public boolean waitFor(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return this.terminated.await(timeout, unit);
+	}
+
+	@Override
+	public int exitValue() {
+		if (this.terminated.getCount() > 0) {
+			throw new IllegalThreadStateException("Strategy " + this.threads.getName() + " has not terminated yet.");
+		}
+		return this.exitValue;
+	}
+
+	@Override
+	public boolean isAlive() {
+		return this.terminated.getCount() > 0;
+	}
+
+	/**
+	 * Interrupts all threads of the strategy.
+	 */
+	@Override
+	public void destroy() {
+		this.threads.interrupt();
+	}
+
+	/**
+	 * Interrupts all threads of the strategy and drops their further output. Threads cannot be killed, so threads that ignore interrupts keep running.
+	 */
+	@Override
+	public Process destroyForcibly() {
+		this.threads.interrupt();
+		this.out.close();
+		this.err.close();
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "InProcessStrategy [" + this.threads.getName() + "]";
+	}
+
+	/**
+	 * Bounded in-memory pipe between the threads of the strategy and the log forwarder. Writers block while the pipe is full; output written after the pipe has been closed is dropped.
+	 */
+	private static final class Pipe {
+
+		private final byte[] buffer = new byte[PIPE_SIZE];
+		private int head = 0;
+		private int count = 0;
+		private boolean closed = false;
+
+		private final OutputStream sink = new OutputStream() {
+
+			@Override
+			public void write(final int b) throws IOException {
+				this.write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(final byte[] b, final int off, final int len) throws IOException {
+				Pipe.this.write(b, off, len);
+			}
+		};
+
+		private final InputStream source = new InputStream() {
+
+			@Override
+			public int available() {
+				return Pipe.this.available();
+			}
+
+			@Override
+			public int read() throws IOException {
+				byte[] b = new byte[1];
+				return this.read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+			}
+
+			@Override
+			public int read(final byte[] b, final int off, final int len) throws IOException {
+				return Pipe.this.read(b, off, len);
+			}
+		};
+
+		private synchronized void write(final byte[] b, int off, int len) throws InterruptedIOException {
+			while (len > 0) {
+				while (this.count == this.buffer.length && !this.closed) {
+					try {
+						this.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException();
+					}
+				}
+				if (this.closed) {
+					return;
+				}
+				int tail = (this.head + this.count) % this.buffer.length;
+				int chunk = Math.min(len, Math.min(this.buffer.length - this.count, this.buffer.length - tail));
+				System.arraycopy(b, off, this.buffer, tail, chunk);
+				this.count += chunk;
+				off += chunk;
+				len -= chunk;
+				this.notifyAll();
+			}
+		}
+
+		private synchronized int available() {
+			return this.count;
+		}
+
+		private synchronized int read(final byte[] b, final int off, final int len) throws InterruptedIOException {
+			if (len == 0) {
+				return 0;
+			}
+			while (this.count == 0 && !this.closed) {
+				try {
+					this.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+			if (this.count == 0) {
+				return -1;
+			}
+			int chunk = Math.min(len, Math.min(this.count, this.buffer.length - this.head));
+			System.arraycopy(this.buffer, this.head, b, off, chunk);
+			this.head = (this.head + chunk) % this.buffer.length;
+			this.count -= chunk;
+			this.notifyAll();
+			return chunk;
+		}
+
+		private synchronized void close() {
+			this.closed = true;
+			this.notifyAll();
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package de.upb.crc901.proseco.core.composition;
+
+/**
+ * Is notified whenever the strategies of a composition have found a better solution than before.
+ *
+ * Listeners are called on the thread that polls the scores, i.e. the composition thread or a log forwarder thread, and therefore should return quickly.
+ */
+public interface IncumbentListener {
+
+	public void onNewIncumbent(String processId, String strategyName, double score, int numberOfSolutions);
+
+}
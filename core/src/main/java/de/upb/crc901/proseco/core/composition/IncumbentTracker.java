@@ -0,0 +1,236 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.util.PROSECOProcessEnvironment;
+
+/**
+ * Keeps track of the best solution found so far by the strategies of a composition (lower scores are better).
+ *
+ * The score files of the strategies are polled while the search is running and whenever a strategy terminates; a file is only read again when its modification time or length has changed. Score files that are being written
+ * and cannot be parsed yet are picked up with the next poll. The winner is therefore known as soon as the search ends, and {@link IncumbentListener}s learn about every improvement while the search is running.
+ */
+public class IncumbentTracker {
+
+	private static final Logger L = LoggerFactory.getLogger(IncumbentTracker.class);
+
+	private static final String SCORE_FILE = "score";
+
+	/* the tracker of the most recent search of each process, until its composition has consumed the result */
+	private static final Map<String, IncumbentTracker> trackers = new ConcurrentHashMap<>();
+
+	/* results of the searches whose trackers have been removed, so late queries can still be answered */
+	private static final int MAX_SUMMARIES = 1000;
+	private static final Map<String, Summary> summaries = Collections.synchronizedMap(new LinkedHashMap<String, Summary>() {
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Summary> eldest) {
+			return this.size() > MAX_SUMMARIES;
+		}
+	});
+	private static final List<IncumbentListener> listeners = new CopyOnWriteArrayList<>();
+
+	private final PROSECOProcessEnvironment executionEnvironment;
+	private final Map<String, Long> stamps = new HashMap<>();
+	private final Map<String, Double> scores = new HashMap<>();
+	private final long startTime;
+
+	private volatile String bestStrategy = null;
+	private volatile double bestScore = Double.MAX_VALUE;
+	private volatile long lastImprovementTime;
+	private volatile int numberOfSolutions = 0;
+
+	public IncumbentTracker(final PROSECOProcessEnvironment executionEnvironment) {
+		this.executionEnvironment = executionEnvironment;
+		this.startTime = System.currentTimeMillis();
+		this.lastImprovementTime = this.startTime;
+		trackers.put(executionEnvironment.getProcessId(), this);
+	}
+
+	/**
+	 * @return The tracker of the search of the given process, or <code>null</code> if its search has not been started (in this JVM).
+	 */
+	public static IncumbentTracker forProcess(final String processId) {
+		return trackers.get(processId);
+	}
+
+	/**
+	 * Removes the tracker of the process once its composition does not need it anymore. Only a small summary of the result is kept.
+	 */
+	public static void remove(final String processId) {
+		IncumbentTracker tracker = trackers.remove(processId);
+		if (tracker != null) {
+			summaries.put(processId, tracker.getSummary());
+		}
+	}
+
+	/**
+	 * @return The best solution found so far by the search of the process, or <code>null</code> if its search has not been started (in this JVM).
+	 */
+	public static Summary getSummary(final String processId) {
+		IncumbentTracker tracker = trackers.get(processId);
+		return tracker != null ? tracker.getSummary() : summaries.get(processId);
+	}
+
+	public static void addListener(final IncumbentListener listener) {
+		listeners.add(listener);
+	}
+
+	public static void removeListener(final IncumbentListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Reads the score files that have changed since the last poll.
+	 *
+	 * @return <code>true</code> if a better solution has been found.
+	 */
+	public synchronized boolean poll() {
+		File[] strategyOutputDirectories = this.executionEnvironment.getSearchOutputDirectory().listFiles(File::isDirectory);
+		if (strategyOutputDirectories == null) {
+			return false;
+		}
+		boolean improved = false;
+		for (File strategyOutputDirectory : strategyOutputDirectories) {
+			File scoreFile = new File(strategyOutputDirectory, SCORE_FILE);
+			if (!scoreFile.exists()) {
+				continue;
+			}
+			long stamp = scoreFile.lastModified() * 31 + scoreFile.length();
+			Long knownStamp = this.stamps.get(strategyOutputDirectory.getName());
+			if (knownStamp != null && knownStamp == stamp) {
+				continue;
+			}
+			double score;
+			try {
+				score = Double.parseDouble(FileUtils.readFileToString(scoreFile, Charset.defaultCharset()).trim());
+			} catch (IOException | NumberFormatException e) {
+				/* the file is probably being written right now */
+				continue;
+			}
+			this.stamps.put(strategyOutputDirectory.getName(), stamp);
+			this.scores.put(strategyOutputDirectory.getName(), score);
+			if (knownStamp == null) {
+				this.numberOfSolutions++;
+			}
+			L.info("Strategy {} reports a solution performance of {}", strategyOutputDirectory.getName(), score);
+			if (score < this.bestScore) {
+				L.info("New incumbent: strategy {} with score {}", strategyOutputDirectory.getName(), score);
+				this.bestScore = score;
+				this.bestStrategy = strategyOutputDirectory.getName();
+				this.lastImprovementTime = System.currentTimeMillis();
+				improved = true;
+			}
+		}
+		if (improved) {
+			for (IncumbentListener listener : listeners) {
+				try {
+					listener.onNewIncumbent(this.executionEnvironment.getProcessId(), this.bestStrategy, this.bestScore, this.numberOfSolutions);
+				} catch (RuntimeException e) {
+					L.warn("Incumbent listener {} failed.", listener, e);
+				}
+			}
+		}
+		return improved;
+	}
+
+	/**
+	 * @return The version of the score file of the strategy that has been read last, <code>null</code> if it has not been read yet.
+	 */
+	synchronized Long getScoreVersion(final String strategyName) {
+		return this.stamps.get(strategyName);
+	}
+
+	/**
+	 * @return The strategies that have reported a solution, best first, with the scores read last.
+	 */
+	public synchronized List<String> getRanking() {
+		List<String> ranking = new ArrayList<>(this.scores.keySet());
+		ranking.sort((s1, s2) -> Double.compare(this.scores.get(s1), this.scores.get(s2)));
+		return ranking;
+	}
+
+	public boolean hasSolution() {
+		return this.bestStrategy != null;
+	}
+
+	/**
+	 * @return The name of the strategy with the best solution, <code>null</code> if there is no solution yet.
+	 */
+	public String getBestStrategy() {
+		return this.bestStrategy;
+	}
+
+	public double getBestScore() {
+		return this.bestScore;
+	}
+
+	/**
+	 * @return The number of strategies that have reported a solution.
+	 */
+	public int getNumberOfSolutions() {
+		return this.numberOfSolutions;
+	}
+
+	/**
+	 * @return The time of the last improvement, or of the creation of the tracker if there has not been any solution yet.
+	 */
+	public long getLastImprovementTime() {
+		return this.lastImprovementTime;
+	}
+
+	public long getStartTime() {
+		return this.startTime;
+	}
+
+	public synchronized Summary getSummary() {
+		return new Summary(this.bestStrategy, this.bestScore, this.numberOfSolutions);
+	}
+
+	/**
+	 * Immutable view of the best solution of a search.
+	 */
+	public static class Summary {
+		private final String bestStrategy;
+		private final double bestScore;
+		private final int numberOfSolutions;
+
+		Summary(final String bestStrategy, final double bestScore, final int numberOfSolutions) {
+			this.bestStrategy = bestStrategy;
+			this.bestScore = bestScore;
+			this.numberOfSolutions = numberOfSolutions;
+		}
+
+		public boolean hasSolution() {
+			return this.bestStrategy != null;
+		}
+
+		/**
+		 * @return The name of the strategy with the best solution, <code>null</code> if there is no solution.
+		 */
+		public String getBestStrategy() {
+			return this.bestStrategy;
+		}
+
+		public double getBestScore() {
+			return this.bestScore;
+		}
+
+		public int getNumberOfSolutions() {
+			return this.numberOfSolutions;
+		}
+	}
+}
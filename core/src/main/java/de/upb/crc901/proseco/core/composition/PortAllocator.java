@@ -0,0 +1,125 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands out the ports for deployed services, so concurrent compositions never deploy to the same port.
+ *
+ * Leased ports are kept in a bitmap. A candidate port is only leased if a {@link ServerSocket} can be bound to it, which fails immediately for ports used by other programs, instead of waiting for a connection attempt. The
+ * search for a free port continues behind the port leased last, so a port that has just been released is not reused right away.
+ *
+ * Services may terminate on their own without their lease being released. Therefore, once a service has been deployed, its port is reclaimed as soon as it can be bound again.
+ */
+public class PortAllocator {
+
+	private static final Logger L = LoggerFactory.getLogger(PortAllocator.class);
+
+	private static final int MAX_PORT = 65535;
+
+	private static PortAllocator instance;
+
+	private final BitSet leasedPorts = new BitSet(MAX_PORT + 1);
+	private final Map<String, Integer> leases = new HashMap<>();
+	/* leased port -> process whose service has been deployed to it */
+	private final Map<Integer, String> deployedServices = new HashMap<>();
+	private int nextCandidate = 0;
+
+	/**
+	 * @return The port allocator of this node.
+	 */
+	public static synchronized PortAllocator get() {
+		if (instance == null) {
+			instance = new PortAllocator();
+		}
+		return instance;
+	}
+
+	/**
+	 * Leases a free port in [minPort, maxPort] to the process. A process holds at most one lease; a previous lease of the process is released.
+	 *
+	 * @throws IOException
+	 *             If all ports of the range are leased or in use.
+	 */
+	public synchronized int allocate(final String processId, final int minPort, final int maxPort) throws IOException {
+		if (minPort < 1 || maxPort > MAX_PORT || minPort > maxPort) {
+			throw new IllegalArgumentException("Invalid port range [" + minPort + ", " + maxPort + "]");
+		}
+		this.release(processId);
+		int candidate = this.nextCandidate >= minPort && this.nextCandidate <= maxPort ? this.nextCandidate : minPort;
+		for (int tried = 0; tried <= maxPort - minPort; tried++, candidate = candidate == maxPort ? minPort : candidate + 1) {
+			if (this.leasedPorts.get(candidate) && !this.reclaim(candidate)) {
+				continue;
+			}
+			if (!isBindable(candidate)) {
+				continue;
+			}
+			this.leasedPorts.set(candidate);
+			this.leases.put(processId, candidate);
+			this.nextCandidate = candidate + 1;
+			L.debug("Leased port {} to {}.", candidate, processId);
+			return candidate;
+		}
+		throw new IOException("No free port in [" + minPort + ", " + maxPort + "] for " + processId);
+	}
+
+	/**
+	 * Marks the service of the process as deployed, so its port is reclaimed once the service has terminated.
+	 */
+	public synchronized void markDeployed(final String processId) {
+		Integer port = this.leases.get(processId);
+		if (port != null) {
+			this.deployedServices.put(port, processId);
+		}
+	}
+
+	/**
+	 * Releases the port leased to the process, if any.
+	 */
+	public synchronized void release(final String processId) {
+		Integer port = this.leases.remove(processId);
+		if (port != null) {
+			this.leasedPorts.clear(port);
+			this.deployedServices.remove(port);
+			L.debug("Released port {} of {}.", port, processId);
+		}
+	}
+
+	/**
+	 * Releases the lease of a port whose service has been deployed but does not listen on it anymore. Ports of services that are still being deployed are never reclaimed.
+	 */
+	private boolean reclaim(final int port) {
+		String processId = this.deployedServices.get(port);
+		if (processId == null || !isBindable(port)) {
+			return false;
+		}
+		L.info("The service of {} does not listen on port {} anymore, reclaiming the port.", processId, port);
+		this.release(processId);
+		return true;
+	}
+
+	/**
+	 * @return The port leased to the process, or -1 if it has none.
+	 */
+	public synchronized int getPort(final String processId) {
+		Integer port = this.leases.get(processId);
+		return port != null ? port : -1;
+	}
+
+	private static boolean isBindable(final int port) {
+		try (ServerSocket socket = new ServerSocket()) {
+			socket.setReuseAddress(false);
+			socket.bind(new InetSocketAddress(port));
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.util.BitSet;
+
+/**
+ * Cores and memory that the {@link StrategyResourceGovernor} has granted to a single strategy process.
+ */
+public class ResourceLease {
+
+	private final StrategyResourceGovernor governor;
+	private final String holder;
+	private final BitSet cpus;
+	private final String cpuList;
+	private final int memoryInMB;
+	private boolean released = false;
+
+	ResourceLease(final StrategyResourceGovernor governor, final String holder, final BitSet cpus, final String cpuList, final int memoryInMB) {
+		this.governor = governor;
+		this.holder = holder;
+		this.cpus = cpus;
+		this.cpuList = cpuList;
+		this.memoryInMB = memoryInMB;
+	}
+
+	public String getHolder() {
+		return this.holder;
+	}
+
+	public int getNumberOfCPUs() {
+		return this.cpus.cardinality();
+	}
+
+	/**
+	 * @return The real ids of the granted CPUs in the list format of <code>taskset -c</code>, e.g. <code>0,1,4</code>.
+	 */
+	public String getCPUList() {
+		return this.cpuList;
+	}
+
+	/**
+	 * @return The granted CPUs of the governor's budget, which may differ from the real CPU ids.
+	 */
+	BitSet getCPUs() {
+		return this.cpus;
+	}
+
+	public int getMemoryInMB() {
+		return this.memoryInMB;
+	}
+
+	/**
+	 * Returns the resources to the governor. Releasing a lease more than once has no effect.
+	 */
+	public void release() {
+		synchronized (this) {
+			if (this.released) {
+				return;
+			}
+			this.released = true;
+		}
+		this.governor.release(this);
+	}
+
+	@Override
+	public String toString() {
+		return "ResourceLease [holder=" + this.holder + ", cpus=" + this.getCPUList() + ", memoryInMB=" + this.memoryInMB + "]";
+	}
+}
@@ -7,12 +7,15 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.upb.crc901.proseco.commons.config.PROSECOConfig;
 import de.upb.crc901.proseco.commons.interview.InterviewFillout;
+import de.upb.crc901.proseco.commons.processstatus.ProcessDeadline;
 import de.upb.crc901.proseco.commons.util.SerializationUtil;
 import de.upb.crc901.proseco.commons.util.PROSECOProcessEnvironment;
 
@@ -20,11 +23,17 @@ public abstract class SearchStrategy implements Runnable {
 
 	private static final Logger L = LoggerFactory.getLogger(SearchStrategy.class);
 
+	/* set by an InProcessStrategy on the thread that creates the strategy */
+	static final ThreadLocal<PROSECOProcessEnvironment> IN_PROCESS_ENVIRONMENT = new ThreadLocal<>();
+	static final ThreadLocal<Long> IN_PROCESS_DEADLINE = new ThreadLocal<>();
+
 	private final String strategyName;
 	private final File dirOfInputs;
 	private final File dirOfOutputs;
 	private final PROSECOProcessEnvironment environment;
+	/* deadline as of System.nanoTime() */
 	private final long deadline;
+	private CandidateEventBuffer candidateEventBuffer;
 
 	public SearchStrategy(final String[] args) throws IOException {
 		if (args.length != 4) {
@@ -33,12 +42,33 @@ public abstract class SearchStrategy implements Runnable {
 							+ Arrays.toString(args));
 		}
 		File environmentDir = new File(args[0]); // the process folder
-		this.environment = new PROSECOProcessEnvironment(environmentDir);
+		PROSECOProcessEnvironment sharedEnvironment = IN_PROCESS_ENVIRONMENT.get();
+		this.environment = sharedEnvironment != null ? sharedEnvironment : new PROSECOProcessEnvironment(environmentDir);
 		this.dirOfInputs = new File(args[1]);
 		this.dirOfOutputs = new File(args[2]);
 		this.strategyName = this.dirOfOutputs.getName();
 		L.debug("Recognized strategy {} by output dir name. Using {} as input folder.", strategyName, dirOfInputs.getAbsolutePath());
-		this.deadline = System.currentTimeMillis() + Integer.valueOf(args[3]) * 1000;
+		this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getTimeoutInMS(args[3]));
+	}
+
+	/**
+	 * The executor passes the exact point in time by which the strategy has to be done in the environment, as a system property to a {@link SearchStrategyWorker}, or directly to an {@link InProcessStrategy}; the
+	 * timeout argument is only used if the strategy is run on its own.
+	 */
+	private static long getTimeoutInMS(final String timeoutArgument) {
+		Long inProcessDeadline = IN_PROCESS_DEADLINE.get();
+		if (inProcessDeadline != null) {
+			return Math.max(0, inProcessDeadline - System.currentTimeMillis());
+		}
+		String deadline = System.getProperty(ProcessDeadline.ENV_DEADLINE, System.getenv(ProcessDeadline.ENV_DEADLINE));
+		if (deadline != null) {
+			try {
+				return Math.max(0, Long.parseLong(deadline) - System.currentTimeMillis());
+			} catch (NumberFormatException e) {
+				L.warn("Ignoring invalid {} {}", ProcessDeadline.ENV_DEADLINE, deadline);
+			}
+		}
+		return Integer.valueOf(timeoutArgument) * 1000L;
 	}
 
 	public PROSECOProcessEnvironment getEnvironment() {
@@ -98,11 +128,36 @@ public abstract class SearchStrategy implements Runnable {
 		this.writeStringOutput("score", "" + score);
 	}
 
+	/**
+	 * Reports a candidate to the PROSECO webserver. Candidates are buffered and sent in batches, see {@link CandidateEventBuffer}.
+	 */
+	protected void reportCandidate(final String candidateID, final String candidateDescription, final double candidateEvaluation) throws IOException {
+		this.getCandidateEventBuffer().report(candidateID, candidateDescription, candidateEvaluation);
+	}
+
+	protected synchronized CandidateEventBuffer getCandidateEventBuffer() throws IOException {
+		if (this.candidateEventBuffer == null) {
+			PROSECOConfig config = this.environment.getProsecoConfig();
+			this.candidateEventBuffer = new CandidateEventBuffer(config.getServerURL(), this.strategyName, config.getCandidateBatchSize(), config.getCandidateBatchDelayInMS());
+		}
+		return this.candidateEventBuffer;
+	}
+
+	/**
+	 * Sends the remaining candidates; needed for strategies that do not run in a JVM of their own, where the shutdown hook of the buffer would only run with the webserver.
+	 */
+	synchronized void closeCandidateEventBuffer() {
+		if (this.candidateEventBuffer != null) {
+			this.candidateEventBuffer.close();
+			this.candidateEventBuffer = null;
+		}
+	}
+
 	protected File getStrategyDirectory() throws IOException {
 		return new File(this.getEnvironment().getStrategyDirectory() + File.separator + this.getStrategyName()).getCanonicalFile();
 	}
 
 	protected int getRemainingSeconds() {
-		return (int) ((this.deadline - System.currentTimeMillis()) / 1000);
+		return (int) TimeUnit.NANOSECONDS.toSeconds(this.deadline - System.nanoTime());
 	}
 }
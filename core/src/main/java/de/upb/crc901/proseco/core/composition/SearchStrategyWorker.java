@@ -0,0 +1,110 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.processstatus.ProcessDeadline;
+
+/**
+ * Entry point of a warm worker for a JVM-based search strategy. A worker is started ahead of time by the {@link WarmWorkerPool}, so JVM startup and loading the strategy class do not count against the timeout of a composition.
+ *
+ * The worker runs exactly one composition job. It waits for a single line on stdin that holds the four arguments of {@link SearchStrategy#SearchStrategy(String[])} followed by the deadline and the resources of the job,
+ * separated by tabs, and then runs the strategy like its regular runnable would. Since the environment of a running process cannot be changed, the deadline and resources are passed as system properties with the names of
+ * the environment variables.
+ *
+ * Until the job arrives, the worker discards everything written to System.out and System.err, because nobody reads its pipes while it is waiting.
+ *
+ * A worker runnable of a strategy typically looks like <code>java -cp ... de.upb.crc901.proseco.core.composition.SearchStrategyWorker my.package.MyStrategy</code>.
+ */
+public class SearchStrategyWorker {
+
+	private static final Logger L = LoggerFactory.getLogger(SearchStrategyWorker.class);
+
+	private static final String SEPARATOR = "\t";
+	private static final int NUMBER_OF_FIELDS = 7;
+
+	private SearchStrategyWorker() {
+		// intentionally left blank.
+	}
+
+	public static void main(final String[] args) throws Exception {
+		if (args.length != 1) {
+			throw new IllegalArgumentException("A strategy worker must be invoked with the name of the search strategy class as its only argument. The following arguments were given: " + Arrays.toString(args));
+		}
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		PrintStream discard = new PrintStream(new OutputStream() {
+			@Override
+			public void write(final int b) {
+				// intentionally left blank.
+			}
+
+			@Override
+			public void write(final byte[] b, final int off, final int len) {
+				// intentionally left blank.
+			}
+		});
+		System.setOut(discard);
+		System.setErr(discard);
+		String job;
+		Constructor<? extends SearchStrategy> constructor;
+		try {
+			constructor = Class.forName(args[0]).asSubclass(SearchStrategy.class).getConstructor(String[].class);
+			L.debug("Worker for {} is ready.", args[0]);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+			job = reader.readLine();
+		} finally {
+			System.setOut(out);
+			System.setErr(err);
+		}
+		if (job == null) {
+			L.debug("Worker has been released without a job.");
+			return;
+		}
+		String[] fields = job.split(SEPARATOR, -1);
+		if (fields.length != NUMBER_OF_FIELDS) {
+			throw new IllegalArgumentException("Invalid job for a strategy worker: " + job);
+		}
+		System.setProperty(ProcessDeadline.ENV_DEADLINE, fields[4]);
+		System.setProperty("PROSECO_CPUS", fields[5]);
+		System.setProperty("PROSECO_MEMORY_MB", fields[6]);
+
+		SearchStrategy strategy;
+		try {
+			strategy = constructor.newInstance((Object) Arrays.copyOf(fields, 4));
+		} catch (InvocationTargetException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+		strategy.run();
+	}
+
+	/**
+	 * Hands a composition job to a waiting worker.
+	 *
+	 * @param strategyArguments
+	 *            The arguments of the strategy, i.e. process folder, input folder, output folder and timeout in seconds.
+	 */
+	public static void sendJob(final Process worker, final String[] strategyArguments, final long deadline, final ResourceLease lease) throws IOException {
+		StringBuilder job = new StringBuilder();
+		for (String argument : strategyArguments) {
+			if (argument.contains(SEPARATOR) || argument.contains("\n")) {
+				throw new IllegalArgumentException("Strategy argument cannot be passed to a worker: " + argument);
+			}
+			job.append(argument).append(SEPARATOR);
+		}
+		job.append(deadline).append(SEPARATOR).append(lease.getNumberOfCPUs()).append(SEPARATOR).append(lease.getMemoryInMB()).append('\n');
+		OutputStream stdin = worker.getOutputStream();
+		stdin.write(job.toString().getBytes(StandardCharsets.UTF_8));
+		stdin.close();
+	}
+}
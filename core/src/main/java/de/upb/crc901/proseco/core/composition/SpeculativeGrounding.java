@@ -0,0 +1,168 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.util.PROSECOProcessEnvironment;
+import de.upb.crc901.proseco.commons.util.ProcessTree;
+
+/**
+ * Grounds the current best solution of a composition in the background while the search is still running, so grounding overlaps with the search.
+ *
+ * Whenever the incumbent changes, the running grounding is cancelled and restarted for the new incumbent in a scratch folder. When the search has ended, the result is adopted as the final grounding if it was made
+ * for the winning strategy and its score file has not changed since; otherwise the composition grounds the winner as usual. Strategies should therefore write their score file after the rest of their output.
+ *
+ * Like the additional groundings of {@link CandidateGrounding}, a speculative grounding only runs on a core that the {@link StrategyResourceGovernor} can grant right away, so it never delays strategies of any composition.
+ */
+public class SpeculativeGrounding implements IncumbentListener {
+
+	private static final Logger L = LoggerFactory.getLogger(SpeculativeGrounding.class);
+
+	private static final String SCRATCH_FOLDER = "speculative-final";
+
+	private final PROSECOProcessEnvironment executionEnvironment;
+	private final File scratchDirectory;
+
+	/* restarts are done on a thread of their own, so the threads polling the scores are not blocked */
+	private final ExecutorService restarter;
+
+	/* guarded by this */
+	private String strategyName;
+	private Long scoreVersion;
+	private Process grounding;
+	private ResourceLease lease;
+	private boolean closed = false;
+
+	public SpeculativeGrounding(final PROSECOProcessEnvironment executionEnvironment) {
+		this.executionEnvironment = executionEnvironment;
+		this.scratchDirectory = new File(executionEnvironment.getSearchDirectory(), SCRATCH_FOLDER);
+		this.restarter = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "speculative-grounding-" + executionEnvironment.getProcessId());
+			thread.setDaemon(true);
+			return thread;
+		});
+		IncumbentTracker.addListener(this);
+	}
+
+	@Override
+	public void onNewIncumbent(final String processId, final String strategyName, final double score, final int numberOfSolutions) {
+		if (!processId.equals(this.executionEnvironment.getProcessId())) {
+			return;
+		}
+		this.restarter.execute(this::restart);
+	}
+
+	/**
+	 * Grounds the current incumbent unless it is already being grounded; events that queued up in the meantime are thereby collapsed.
+	 */
+	private synchronized void restart() {
+		IncumbentTracker tracker = IncumbentTracker.forProcess(this.executionEnvironment.getProcessId());
+		if (this.closed || tracker == null || !tracker.hasSolution()) {
+			return;
+		}
+		String incumbent = tracker.getBestStrategy();
+		Long version = tracker.getScoreVersion(incumbent);
+		if (incumbent.equals(this.strategyName) && version != null && version.equals(this.scoreVersion)) {
+			return;
+		}
+		this.cancel();
+		StrategyResourceGovernor governor = StrategyResourceGovernor.get(this.executionEnvironment.getProsecoConfig());
+		this.lease = governor.tryAcquire(this.executionEnvironment.getProcessId() + "/speculative-grounding", 1, this.executionEnvironment.getPrototypeConfig().getMemoryPerStrategyInMB());
+		if (this.lease == null) {
+			L.debug("No idle resources for speculatively grounding the solution of {}.", incumbent);
+			return;
+		}
+		try {
+			FileUtils.deleteDirectory(this.scratchDirectory);
+			L.info("Speculatively grounding the solution of {}.", incumbent);
+			this.grounding = CompositionAlgorithm.startGrounding(this.executionEnvironment, incumbent, this.scratchDirectory);
+			this.strategyName = incumbent;
+			this.scoreVersion = version;
+			governor.restrictProcess(this.grounding, this.lease);
+		} catch (IOException e) {
+			L.warn("Could not start speculative grounding of {}: {}", incumbent, e.getMessage());
+			this.cancel();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private synchronized void cancel() {
+		if (this.grounding != null && this.grounding.isAlive()) {
+			L.debug("Cancelling speculative grounding of {}.", this.strategyName);
+			try {
+				ProcessTree.terminate(Collections.singletonList(this.grounding), 0);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.releaseLease();
+		this.grounding = null;
+		this.strategyName = null;
+		this.scoreVersion = null;
+	}
+
+	private synchronized void releaseLease() {
+		if (this.lease != null) {
+			this.lease.release();
+			this.lease = null;
+		}
+	}
+
+	/**
+	 * Stops reacting to new incumbents and waits for the speculative grounding of the winner, if there is one.
+	 *
+	 * @return <code>true</code> if the grounding of the winner has succeeded and has been moved to the target folder, <code>false</code> if the winner still has to be grounded.
+	 */
+	public boolean adopt(final String winningStrategy, final File targetDirectory) throws InterruptedException, IOException {
+		IncumbentTracker.removeListener(this);
+		this.restarter.shutdownNow();
+		Process candidate;
+		synchronized (this) {
+			this.closed = true;
+			IncumbentTracker tracker = IncumbentTracker.forProcess(this.executionEnvironment.getProcessId());
+			Long version = tracker != null ? tracker.getScoreVersion(winningStrategy) : null;
+			if (this.grounding == null || !winningStrategy.equals(this.strategyName) || version == null || !version.equals(this.scoreVersion)) {
+				L.info("Speculative grounding of {} cannot be used for the winner {}.", this.strategyName, winningStrategy);
+				this.cancel();
+				return false;
+			}
+			candidate = this.grounding;
+		}
+		int exitCode;
+		try {
+			exitCode = candidate.waitFor();
+		} finally {
+			this.releaseLease();
+		}
+		if (exitCode != 0) {
+			L.warn("Speculative grounding of {} failed with exit code {}.", winningStrategy, exitCode);
+			return false;
+		}
+		FileUtils.deleteDirectory(targetDirectory);
+		if (this.scratchDirectory.exists()) {
+			FileUtils.moveDirectory(this.scratchDirectory, targetDirectory);
+		}
+		return true;
+	}
+
+	/**
+	 * Cancels the speculative grounding and removes its scratch folder.
+	 */
+	public void close() {
+		IncumbentTracker.removeListener(this);
+		this.restarter.shutdownNow();
+		synchronized (this) {
+			this.closed = true;
+			this.cancel();
+		}
+		FileUtils.deleteQuietly(this.scratchDirectory);
+	}
+}
@@ -1,28 +1,33 @@
 package de.upb.crc901.proseco.core.composition;
 
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.List;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.aeonbits.owner.ConfigCache;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.upb.crc901.proseco.commons.config.GlobalConfig;
+import de.upb.crc901.proseco.commons.config.PROSECOConfig;
+import de.upb.crc901.proseco.commons.config.PrototypeConfig;
+import de.upb.crc901.proseco.commons.console.RotatingFileOutputStream;
+import de.upb.crc901.proseco.commons.processstatus.EProcessState;
+import de.upb.crc901.proseco.commons.processstatus.ProcessDeadline;
 import de.upb.crc901.proseco.commons.util.PROSECOProcessEnvironment;
+import de.upb.crc901.proseco.commons.util.ProcessTree;
 
 /**
  * ExecuteStrategiesCommand, searches for strategy subfolders and forking a new process for each strategy. Output and Error streams of these processes are directed to <code>systemlog/systemOut.log</code> and
- * <code>systemlog/systemErr.log</code> files respectively.
+ * <code>systemlog/systemErr.log</code> files respectively. The output of all processes is forwarded by the node-wide {@link StrategyLogForwarder}, so running strategies do not occupy any threads of their own.
  *
  * @author kadirayk, fmohr, wever
  *
@@ -35,17 +40,33 @@ public class StrategyExecutor {
 	/* Global environment properties */
 	private static final GlobalConfig GLOBAL_CONFIG = ConfigCache.getOrCreate(GlobalConfig.class);
 
+	/* how often the score files are checked while the strategies are running */
+	private static final long SCORE_POLL_INTERVAL_IN_MS = 500;
+
 	private final PROSECOProcessEnvironment executionEnvironment;
 
 	private final Semaphore completionTickets = new Semaphore(0);
 
+	private final IncumbentTracker incumbentTracker;
+
+	private final StrategyResourceMonitor resourceMonitor = new StrategyResourceMonitor();
+
 	public StrategyExecutor(final PROSECOProcessEnvironment executionEnvironment) {
 		this.executionEnvironment = executionEnvironment;
+		this.incumbentTracker = new IncumbentTracker(executionEnvironment);
 	}
 
 	public void execute(final int timeoutInMS) throws IOException, InterruptedException {
+		this.execute(new ProcessDeadline(this.executionEnvironment.getProcessId(), timeoutInMS));
+	}
+
+	/**
+	 * Runs the strategies until they have terminated or the search phase of the given deadline has ended. Each strategy is told how much of the search phase is left when it is started, minus the grace period for its
+	 * shutdown.
+	 */
+	public void execute(final ProcessDeadline processDeadline) throws IOException, InterruptedException {
 		/* time stamp at the very beginning. */
-		long start = System.currentTimeMillis();
+		long start = System.nanoTime();
 
 		/* Collect all directories for strategies */
 		L.debug("Executing strategies in {}", this.executionEnvironment.getStrategyDirectory());
@@ -59,160 +80,212 @@ public class StrategyExecutor {
 			L.debug("Found {} strategies: {}", strategyDirectories.length, Arrays.toString(strategyDirectories));
 		}
 
-		/* Setup a thread pool for observing the strategies. */
-		ExecutorService pool = Executors.newFixedThreadPool(strategyDirectories.length); // allow all to work in parallel
-
-		int timeoutInSeconds = timeoutInMS / 1000;
-		timeoutInSeconds -= 10;
+		/* strategies are only started once the node has resources for them; they are admitted in the order of their directories */
+		StrategyResourceGovernor governor = StrategyResourceGovernor.get(this.executionEnvironment.getProsecoConfig());
+		StrategyLogForwarder forwarder = StrategyLogForwarder.get(this.executionEnvironment.getProsecoConfig());
+		PrototypeConfig prototypeConfig = this.executionEnvironment.getPrototypeConfig();
+		List<ForwardedProcess> forwardedProcesses = new ArrayList<>();
+		long gracePeriodInMS = prototypeConfig.getShutdownGracePeriodInSeconds() * 1000L;
 
 		/* time stamp directly before scheduling the processes for the strategies */
-		long preSchedule = System.currentTimeMillis();
-
-		for (final File strategyDirectory : strategyDirectories) {
-			String strategyName = strategyDirectory.getName();
-			File outputPath = this.executionEnvironment.getSearchStrategyOutputDirectory(strategyName);
-
-			/* Construct command to execute the runner of the strategy */
-			String[] commandArguments = new String[5];
-			commandArguments[0] = this.executionEnvironment.appendExecutableScriptExtension(new File(strategyDirectory, this.executionEnvironment.getPrototypeConfig().getSearchRunnable())).getAbsolutePath();
-			commandArguments[1] = this.executionEnvironment.getProcessDirectory().getAbsolutePath();
-			commandArguments[2] = this.executionEnvironment.getSearchInputDirectory().getAbsolutePath();
-			commandArguments[3] = outputPath.getAbsolutePath();
-			commandArguments[4] = "" + timeoutInSeconds;
-			new File(commandArguments[0]).setExecutable(true);
-
-			/* organize log outputs */
-			ProcessBuilder pb = new ProcessBuilder(commandArguments);
-			if (GLOBAL_CONFIG.debugMode() && GLOBAL_CONFIG.redirectProcessOutputs()) {
-				pb = pb.redirectOutput(Redirect.INHERIT).redirectError(Redirect.INHERIT);
-			} else {
-				pb = pb.redirectOutput(Redirect.PIPE).redirectError(Redirect.PIPE);
-			}
-			FileUtils.forceMkdir(outputPath);
-			File systemOut = new File(outputPath + File.separator + this.executionEnvironment.getProsecoConfig().getSystemOutFileName());
-			File systemErr = new File(outputPath + File.separator + this.executionEnvironment.getProsecoConfig().getSystemErrFileName());
-			File systemAll = new File(outputPath + File.separator + this.executionEnvironment.getProsecoConfig().getSystemMergedOutputFileName());
-
-			if (L.isDebugEnabled()) {
-				L.debug("Starting process for strategy {}: {}", strategyDirectory, Arrays.toString(commandArguments));
+		long preSchedule = System.nanoTime();
+
+		StrategyOutputBroadcaster.broadcastSearchStarted(this.executionEnvironment.getProcessId());
+		try {
+			for (final File strategyDirectory : strategyDirectories) {
+				String strategyName = strategyDirectory.getName();
+				File outputPath = this.executionEnvironment.getSearchStrategyOutputDirectory(strategyName);
+
+				/* Construct command to execute the runner of the strategy */
+				String[] commandArguments = new String[5];
+				commandArguments[0] = this.executionEnvironment.appendExecutableScriptExtension(new File(strategyDirectory, prototypeConfig.getSearchRunnable())).getAbsolutePath();
+				commandArguments[1] = this.executionEnvironment.getProcessDirectory().getAbsolutePath();
+				commandArguments[2] = this.executionEnvironment.getSearchInputDirectory().getAbsolutePath();
+				commandArguments[3] = outputPath.getAbsolutePath();
+				new File(commandArguments[0]).setExecutable(true);
+
+				/* wait until the node can host the process */
+				ResourceLease lease = governor.acquire(this.executionEnvironment.getProcessId() + "/" + strategyName, prototypeConfig.getCPUsPerStrategy(), prototypeConfig.getMemoryPerStrategyInMB(),
+						processDeadline.getEpochDeadline(EProcessState.SEARCH_STRATEGIES));
+				if (lease == null) {
+					L.warn("Strategy {} has not been started, because the node had no resources for it within the timeout.", strategyName);
+					this.completionTickets.release();
+					continue;
+				}
+
+				/* the strategy has to be done before its shutdown would exceed the search phase; the time spent waiting for resources is not available to it */
+				long strategyTimeInMS = Math.max(0, processDeadline.getRemainingMS(EProcessState.SEARCH_STRATEGIES) - gracePeriodInMS);
+				commandArguments[4] = "" + (strategyTimeInMS / 1000);
+
+				/* organize log outputs */
+				ProcessBuilder pb = new ProcessBuilder(governor.restrictCommand(commandArguments, lease));
+				pb.environment().put("PROSECO_CPUS", String.valueOf(lease.getNumberOfCPUs()));
+				pb.environment().put("PROSECO_MEMORY_MB", String.valueOf(lease.getMemoryInMB()));
+				pb.environment().put(ProcessDeadline.ENV_DEADLINE, String.valueOf(System.currentTimeMillis() + strategyTimeInMS));
+				if (GLOBAL_CONFIG.debugMode() && GLOBAL_CONFIG.redirectProcessOutputs()) {
+					pb = pb.redirectOutput(Redirect.INHERIT).redirectError(Redirect.INHERIT);
+				} else {
+					pb = pb.redirectOutput(Redirect.PIPE).redirectError(Redirect.PIPE);
+				}
+				FileUtils.forceMkdir(outputPath);
+				PROSECOConfig prosecoConfig = this.executionEnvironment.getProsecoConfig();
+
+				if (L.isDebugEnabled()) {
+					L.debug("Starting process for strategy {} with {}: {}", strategyDirectory, lease, Arrays.toString(pb.command().toArray()));
+				}
+				OutputStream stdOutputStream = null;
+				OutputStream errOutputStream = null;
+				OutputStream allOutputStream = null;
+				try {
+					/* when the process has terminated and its output is forwarded, free its resources and offer one ticket for the semaphore; this runs on a pump thread of the forwarder, so the final score is
+					 * read by the thread waiting for the tickets */
+					Runnable onTermination = () -> {
+						this.resourceMonitor.finish(strategyName);
+						lease.release();
+						this.completionTickets.release();
+					};
+					if (prosecoConfig.isConsoleRecordLogEnabled()) {
+						allOutputStream = this.openConsoleFile(new File(outputPath, prosecoConfig.getConsoleRecordFileName()));
+						Process p = this.startStrategy(pb, strategyDirectory, commandArguments, strategyTimeInMS, lease);
+						this.resourceMonitor.track(strategyName, p, outputPath);
+						forwardedProcesses.add(forwarder.register(this.executionEnvironment.getProcessId(), strategyName, p, allOutputStream, onTermination));
+					} else {
+						stdOutputStream = this.openConsoleFile(new File(outputPath, prosecoConfig.getSystemOutFileName()));
+						errOutputStream = this.openConsoleFile(new File(outputPath, prosecoConfig.getSystemErrFileName()));
+						allOutputStream = this.openConsoleFile(new File(outputPath, prosecoConfig.getSystemMergedOutputFileName()));
+						Process p = this.startStrategy(pb, strategyDirectory, commandArguments, strategyTimeInMS, lease);
+						this.resourceMonitor.track(strategyName, p, outputPath);
+						forwardedProcesses.add(forwarder.register(this.executionEnvironment.getProcessId(), strategyName, p, stdOutputStream, errOutputStream, allOutputStream, onTermination));
+					}
+				} catch (IOException e) {
+					L.error("Could not start strategy {}.", strategyName, e);
+					IOUtils.closeQuietly(stdOutputStream);
+					IOUtils.closeQuietly(errOutputStream);
+					IOUtils.closeQuietly(allOutputStream);
+					lease.release();
+					this.completionTickets.release();
+				}
 			}
-			pool.submit(new ProcessRunnerAndLogWriter(strategyName, pb, systemOut, systemErr, systemAll));
-		}
-
-		/* Timestamp after scheduling. */
-		long afterSchedule = System.currentTimeMillis();
 
-		L.debug("Started all jobs, waiting {}ms for termination.", timeoutInMS);
+			/* Timestamp after scheduling. */
+			long afterSchedule = System.nanoTime();
 
-		boolean success = this.completionTickets.tryAcquire(strategyDirectories.length, timeoutInMS, TimeUnit.MILLISECONDS);
+			long remainingTime = Math.max(0, processDeadline.getRemainingMS(EProcessState.SEARCH_STRATEGIES));
+			L.debug("Started all jobs, waiting {}ms for termination.", remainingTime);
 
-		long timeAfter = System.currentTimeMillis();
+			boolean success = this.awaitTermination(strategyDirectories.length, processDeadline, EarlyStopPolicy.fromConfig(prototypeConfig), forwardedProcesses);
 
-		L.debug("All strategies have finished: {}", success);
-		L.debug("Time report\n\tTime to start schedule: {}\n\tTime to schedule: {}\n\tTime waiting for termination: {}", (preSchedule - start), (afterSchedule - preSchedule), (timeAfter - afterSchedule));
+			long timeAfter = System.nanoTime();
 
-		pool.shutdownNow();
-		pool.awaitTermination(1, TimeUnit.DAYS);
-		L.debug("Thread pool now is shut down.");
+			L.debug("All strategies have finished: {}", success);
+			L.debug("Time report\n\tTime to start schedule: {}ms\n\tTime to schedule: {}ms\n\tTime waiting for termination: {}ms", TimeUnit.NANOSECONDS.toMillis(preSchedule - start), TimeUnit.NANOSECONDS.toMillis(afterSchedule - preSchedule),
+					TimeUnit.NANOSECONDS.toMillis(timeAfter - afterSchedule));
+		} finally {
+			/* end strategies that did not terminate in time and stop forwarding their output */
+			this.stopStrategies(forwardedProcesses);
+			for (ForwardedProcess forwardedProcess : forwardedProcesses) {
+				forwardedProcess.detach();
+			}
+			L.debug("Detached console forwarding of all strategies.");
+			StrategyOutputBroadcaster.broadcastSearchEnded(this.executionEnvironment.getProcessId());
+		}
 	}
 
-	private class ProcessRunnerAndLogWriter implements Runnable {
-		private final String strategyName;
-		private final ProcessBuilder pb;
-		private final File standardOutFile;
-		private final File errorOutFile;
-		private final File allFile;
-
-		ProcessRunnerAndLogWriter(final String strategyName, final ProcessBuilder pb, final File standardOutFile, final File errorOutFile, final File allFile) {
-			this.strategyName = strategyName;
-			this.pb = pb;
-			this.standardOutFile = standardOutFile;
-			this.errorOutFile = errorOutFile;
-			this.allFile = allFile;
+	/**
+	 * Runs the strategy inside this JVM if it is allowed to and has an in-process descriptor, hands the job to a warm worker of the strategy if one is waiting, and starts the strategy with its regular runnable otherwise.
+	 */
+	private Process startStrategy(final ProcessBuilder pb, final File strategyDirectory, final String[] commandArguments, final long strategyTimeInMS, final ResourceLease lease) throws IOException, InterruptedException {
+		if (this.executionEnvironment.getProsecoConfig().isInProcessExecutionEnabled()) {
+			File descriptor = new File(strategyDirectory, this.executionEnvironment.getPrototypeConfig().getInProcessDescriptor());
+			if (descriptor.isFile()) {
+				L.debug("Running strategy {} in-process.", strategyDirectory.getName());
+				return InProcessStrategy.start(descriptor, Arrays.copyOfRange(commandArguments, 1, commandArguments.length), this.executionEnvironment, System.currentTimeMillis() + strategyTimeInMS);
+			}
 		}
+		String workerRunnable = this.executionEnvironment.getPrototypeConfig().getWorkerRunnable();
+		if (!workerRunnable.isEmpty()) {
+			File workerFile = this.executionEnvironment.appendExecutableScriptExtension(new File(strategyDirectory, workerRunnable));
+			Process worker = workerFile.exists() ? WarmWorkerPool.get(this.executionEnvironment.getProsecoConfig()).take(workerFile) : null;
+			if (worker != null) {
+				try {
+					/* pinned before the job is sent, so the worker never runs the strategy outside of its lease */
+					StrategyResourceGovernor.get(this.executionEnvironment.getProsecoConfig()).restrictProcess(worker, lease);
+					SearchStrategyWorker.sendJob(worker, Arrays.copyOfRange(commandArguments, 1, commandArguments.length), System.currentTimeMillis() + strategyTimeInMS, lease);
+					L.debug("Handed strategy {} to a warm worker.", strategyDirectory.getName());
+					return worker;
+				} catch (IOException e) {
+					L.warn("Could not hand strategy {} to a warm worker, starting it cold: {}", strategyDirectory.getName(), e.getMessage());
+					worker.destroyForcibly();
+				}
+			} else if (!workerFile.exists()) {
+				L.warn("Worker runnable {} of strategy {} does not exist.", workerFile, strategyDirectory.getName());
+			}
+		}
+		return pb.start();
+	}
 
-		@Override
-		public void run() {
-			Thread t1 = null;
-			Thread t2 = null;
-			try (final OutputStream stdOutputStream = new FileOutputStream(this.standardOutFile);
-					final OutputStream errOutputStream = new FileOutputStream(this.errorOutFile);
-					final OutputStream allOutputStream = new FileOutputStream(this.allFile)) {
-
-				/* launc the actual process */
-				Process p = this.pb.start();
-
-				/* launch thread that forwards the standard output */
-				t1 = new Thread(() -> {
-					try (DataInputStream stdOutput = new DataInputStream(p.getInputStream())) {
-						int outRead = 0;
-						byte[] outBytes = new byte[1024 * 10];
-						while (!Thread.currentThread().isInterrupted() && (outRead = stdOutput.read(outBytes)) != -1) {
-							stdOutputStream.write(outBytes, 0, outRead);
-							allOutputStream.write(outBytes, 0, outRead);
-						}
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}, "strategy-" + this.strategyName + "-stdout-listener");
-
-				/* launch thread that forwards the error output */
-				t2 = new Thread(() -> {
-					try (DataInputStream stdOutput = new DataInputStream(p.getErrorStream())) {
-						int outRead = 0;
-						byte[] outBytes = new byte[1024 * 10];
-						while (!Thread.currentThread().isInterrupted() && (outRead = stdOutput.read(outBytes)) != -1) {
-							errOutputStream.write(this.maskErrorStreamBytes(outRead, outBytes), 0, outRead + 8);
-							allOutputStream.write(this.maskErrorStreamBytes(outRead, outBytes), 0, outRead + 8);
-						}
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}, "strategy-" + this.strategyName + "-stderr-listener");
-
-				/* wait for the process to terminate. When this happens, offer one ticket for the semaphore */
-				t1.start();
-				t2.start();
-				p.waitFor();
-				StrategyExecutor.this.completionTickets.release();
-			} catch (InterruptedException e) {
-				L.warn("Search execution has been interrupted. Interrupting console listeners ...");
-				t1.interrupt();
-				t2.interrupt();
-				L.warn("Ready");
-			} catch (Exception e1) {
-				e1.printStackTrace();
+	/**
+	 * Waits for the strategies to terminate while watching their scores. As soon as the early stop policy (if any) holds, the remaining strategies are ended.
+	 *
+	 * @return <code>true</code> if all strategies terminated on their own.
+	 */
+	private boolean awaitTermination(final int numberOfStrategies, final ProcessDeadline processDeadline, final EarlyStopPolicy earlyStopPolicy, final List<ForwardedProcess> forwardedProcesses)
+			throws InterruptedException {
+		int terminated = 0;
+		long remainingTime;
+		while ((remainingTime = processDeadline.getRemainingMS(EProcessState.SEARCH_STRATEGIES)) > 0) {
+			if (this.completionTickets.tryAcquire(Math.min(remainingTime, SCORE_POLL_INTERVAL_IN_MS), TimeUnit.MILLISECONDS)) {
+				terminated += 1 + this.completionTickets.drainPermits();
+			}
+			/* also polled right after a strategy has terminated, so its final score is read without delay */
+			this.incumbentTracker.poll();
+			if (terminated >= numberOfStrategies) {
+				return true;
+			}
+			String stopReason = earlyStopPolicy.getStopReason(this.incumbentTracker, System.currentTimeMillis());
+			if (stopReason != null) {
+				L.info("Stopping the remaining strategies early, because {}.", stopReason);
+				this.stopStrategies(forwardedProcesses);
+				return false;
 			}
 		}
+		return false;
+	}
 
-		/**
-		 * Marks beginning and end of error stream lines with <b> $_( </b> and <b> )_$ </b>. To mark with these characters byte values of these characters are appended to beginning and end of the read bytes from the stream <br>
-		 * $ : 36 <br>
-		 * _ : 95 <br>
-		 * ( : 40 <br>
-		 * ) = 41 <br>
-		 *
-		 * @param outputStream
-		 * @param allOutStream
-		 * @param outRead
-		 * @param outBytes
-		 */
-		private byte[] maskErrorStreamBytes(final int outRead, final byte[] outBytes) {
-			byte[] markedBytes = new byte[outBytes.length + 8];
-			int index = 0;
-			markedBytes[index++] = 36; // $
-			markedBytes[index++] = 95; // _
-			markedBytes[index++] = 40; // (
-			for (int i = 0; i < outRead; i++) {
-				markedBytes[index++] = outBytes[i];
+	/**
+	 * Ends the strategy processes that are still running together with their child processes. They receive SIGTERM first and have a grace period to write their final score and outputs before they are killed.
+	 */
+	private void stopStrategies(final List<ForwardedProcess> forwardedProcesses) throws InterruptedException {
+		List<Process> runningProcesses = new ArrayList<>();
+		for (ForwardedProcess forwardedProcess : forwardedProcesses) {
+			if (!forwardedProcess.isFinished() && forwardedProcess.getProcess().isAlive()) {
+				runningProcesses.add(forwardedProcess.getProcess());
 			}
-			markedBytes[index++] = 41; // )
-			markedBytes[index++] = 95; // _
-			markedBytes[index++] = 36; // $
-			markedBytes[index++] = 13; // CR
-			markedBytes[index] = 10; // LF
-			return markedBytes;
 		}
+		if (runningProcesses.isEmpty()) {
+			return;
+		}
+		long gracePeriodInMS = this.executionEnvironment.getPrototypeConfig().getShutdownGracePeriodInSeconds() * 1000L;
+		L.info("Terminating {} strategies with a grace period of {}ms.", runningProcesses.size(), gracePeriodInMS);
+		List<Long> survivors = ProcessTree.terminate(runningProcesses, this.resourceMonitor.getKnownDescendants(), gracePeriodInMS);
+		if (!survivors.isEmpty()) {
+			L.warn("The following strategy processes of {} could not be terminated and are still running: {}", this.executionEnvironment.getProcessId(), survivors);
+		}
+
+		/* give the forwarder the chance to drain the pipes of the ended processes */
+		this.completionTickets.tryAcquire(runningProcesses.size(), SCORE_POLL_INTERVAL_IN_MS, TimeUnit.MILLISECONDS);
+		this.incumbentTracker.poll();
+	}
+
+	public IncumbentTracker getIncumbentTracker() {
+		return this.incumbentTracker;
+	}
 
+	/**
+	 * Opens a console file whose size is capped according to the PROSECO config.
+	 */
+	private OutputStream openConsoleFile(final File file) throws IOException {
+		PROSECOConfig prosecoConfig = this.executionEnvironment.getProsecoConfig();
+		return new RotatingFileOutputStream(file, prosecoConfig.getConsoleSegmentSize(), prosecoConfig.getMaxConsoleSegments(), prosecoConfig.isConsoleSegmentCompressionEnabled());
 	}
 }
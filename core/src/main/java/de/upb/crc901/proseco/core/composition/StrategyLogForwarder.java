@@ -0,0 +1,119 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.config.PROSECOConfig;
+import de.upb.crc901.proseco.commons.console.ConsoleRecordFormat;
+
+/**
+ * Forwards the console output of all strategy processes of this node with a small, fixed number of pump threads.
+ *
+ * Process pipes cannot be registered with a NIO selector, so each pump thread polls the pipes of its processes without blocking (only what is {@link java.io.InputStream#available() available} is read) and backs off while all
+ * of them are idle. The number of threads therefore does not depend on the number of strategies or compositions.
+ */
+public class StrategyLogForwarder {
+
+	private static final Logger L = LoggerFactory.getLogger(StrategyLogForwarder.class);
+
+	private static final int CHUNK_SIZE = 1024 * 10;
+	private static final long MAX_IDLE_SLEEP_MS = 20;
+
+	private static StrategyLogForwarder instance;
+
+	private final List<List<ForwardedProcess>> processesPerPump;
+
+	/**
+	 * @return The forwarder of this node. It is created from the given config on first access; later calls share this instance.
+	 */
+	public static synchronized StrategyLogForwarder get(final PROSECOConfig config) {
+		if (instance == null) {
+			instance = new StrategyLogForwarder(config.getNumberOfLogForwarderThreads());
+		}
+		return instance;
+	}
+
+	public StrategyLogForwarder(final int numberOfPumps) {
+		int pumps = Math.max(1, numberOfPumps);
+		this.processesPerPump = new CopyOnWriteArrayList<>();
+		for (int i = 0; i < pumps; i++) {
+			List<ForwardedProcess> processes = new CopyOnWriteArrayList<>();
+			this.processesPerPump.add(processes);
+			Thread pump = new Thread(() -> this.pump(processes), "strategy-log-forwarder-" + i);
+			pump.setDaemon(true);
+			pump.start();
+		}
+		L.info("Forwarding strategy output with {} threads.", pumps);
+	}
+
+	/**
+	 * Starts forwarding the output of the process to the given files, which are closed when the process has terminated.
+	 *
+	 * @param onTermination
+	 *            Run once after the process has terminated and its output has been forwarded completely, or after it has been detached.
+	 */
+	public ForwardedProcess register(final String processId, final String strategyName, final Process process, final OutputStream outFile, final OutputStream errFile, final OutputStream allFile, final Runnable onTermination) {
+		return this.assign(new ForwardedProcess(processId, strategyName, process, outFile, errFile, allFile, onTermination));
+	}
+
+	/**
+	 * Starts forwarding the output of both streams of the process to a single record-framed log, which is closed when the process has terminated.
+	 */
+	public ForwardedProcess register(final String processId, final String strategyName, final Process process, final OutputStream recordFile, final Runnable onTermination) {
+		return this.assign(new ForwardedProcess(processId, strategyName, process, recordFile, onTermination));
+	}
+
+	private ForwardedProcess assign(final ForwardedProcess forwardedProcess) {
+		List<ForwardedProcess> leastLoaded = this.processesPerPump.get(0);
+		for (List<ForwardedProcess> processes : this.processesPerPump) {
+			if (processes.size() < leastLoaded.size()) {
+				leastLoaded = processes;
+			}
+		}
+		leastLoaded.add(forwardedProcess);
+		return forwardedProcess;
+	}
+
+	public int getNumberOfForwardedProcesses() {
+		int sum = 0;
+		for (List<ForwardedProcess> processes : this.processesPerPump) {
+			sum += processes.size();
+		}
+		return sum;
+	}
+
+	private void pump(final List<ForwardedProcess> processes) {
+		byte[] frame = new byte[ConsoleRecordFormat.HEADER_LENGTH + CHUNK_SIZE + ConsoleRecordFormat.ERROR_MARKER_END.length];
+		long idleSleep = 1;
+		while (true) {
+			boolean forwarded = false;
+			for (ForwardedProcess process : processes) {
+				try {
+					forwarded |= process.pump(frame);
+				} catch (RuntimeException e) {
+					L.error("Unexpected error while forwarding output of {}.", process, e);
+					process.detach();
+				}
+				if (process.isFinished()) {
+					processes.remove(process);
+				}
+			}
+			if (forwarded) {
+				idleSleep = 1;
+				continue;
+			}
+			try {
+				TimeUnit.MILLISECONDS.sleep(idleSleep);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			idleSleep = Math.min(MAX_IDLE_SLEEP_MS, idleSleep * 2);
+		}
+	}
+}
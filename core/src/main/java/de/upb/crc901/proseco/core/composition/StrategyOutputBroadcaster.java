@@ -0,0 +1,72 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.console.EConsoleStream;
+
+/**
+ * Hands the console output of all strategy processes of this JVM to the registered {@link StrategyOutputListener}s.
+ */
+public class StrategyOutputBroadcaster {
+
+	private static final Logger L = LoggerFactory.getLogger(StrategyOutputBroadcaster.class);
+
+	private static final List<StrategyOutputListener> listeners = new CopyOnWriteArrayList<>();
+
+	private StrategyOutputBroadcaster() {
+		// intentionally left blank.
+	}
+
+	public static void addListener(final StrategyOutputListener listener) {
+		listeners.add(listener);
+	}
+
+	public static void removeListener(final StrategyOutputListener listener) {
+		listeners.remove(listener);
+	}
+
+	static void broadcast(final String processId, final String strategyName, final EConsoleStream stream, final byte[] data, final int offset, final int length) {
+		for (StrategyOutputListener listener : listeners) {
+			try {
+				listener.onOutput(processId, strategyName, stream, data, offset, length);
+			} catch (RuntimeException e) {
+				L.warn("Output listener {} failed for strategy {} of process {}.", listener, strategyName, processId, e);
+			}
+		}
+	}
+
+	static void broadcastSearchStarted(final String processId) {
+		for (StrategyOutputListener listener : listeners) {
+			try {
+				listener.onSearchStarted(processId);
+			} catch (RuntimeException e) {
+				L.warn("Output listener {} failed on the start of the search of process {}.", listener, processId, e);
+			}
+		}
+	}
+
+	static void broadcastSearchEnded(final String processId) {
+		for (StrategyOutputListener listener : listeners) {
+			try {
+				listener.onSearchEnded(processId);
+			} catch (RuntimeException e) {
+				L.warn("Output listener {} failed on the end of the search of process {}.", listener, processId, e);
+			}
+		}
+	}
+
+	static void broadcastClose(final String processId, final String strategyName, final EConsoleStream stream) {
+		for (StrategyOutputListener listener : listeners) {
+			try {
+				listener.onStreamClosed(processId, strategyName, stream);
+			} catch (RuntimeException e) {
+				L.warn("Output listener {} failed for strategy {} of process {}.", listener, strategyName, processId, e);
+			}
+		}
+	}
+
+}
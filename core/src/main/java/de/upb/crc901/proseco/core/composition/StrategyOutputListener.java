@@ -0,0 +1,41 @@
+package de.upb.crc901.proseco.core.composition;
+
+import de.upb.crc901.proseco.commons.console.EConsoleStream;
+
+/**
+ * Receives the console output of strategy processes directly from the threads forwarding their pipes.
+ *
+ * Implementations are called on the forwarding threads and therefore must never block; a blocking listener would stall the pipe of the strategy process.
+ */
+public interface StrategyOutputListener {
+
+	/**
+	 * @param processId The PROSECO process the strategy belongs to.
+	 * @param strategyName The name of the strategy.
+	 * @param stream The console stream the data has been read from.
+	 * @param data Buffer holding the data. The buffer is reused after the call returns, so it must be copied if it is retained.
+	 * @param offset Offset of the data in the buffer.
+	 * @param length Number of bytes read.
+	 */
+	public void onOutput(String processId, String strategyName, EConsoleStream stream, byte[] data, int offset, int length);
+
+	/**
+	 * Called once the given stream of the strategy has reached its end.
+	 */
+	public void onStreamClosed(String processId, String strategyName, EConsoleStream stream);
+
+	/**
+	 * Called before the first strategy of the given process is started.
+	 */
+	public default void onSearchStarted(final String processId) {
+		// intentionally left blank.
+	}
+
+	/**
+	 * Called once the search of the given process has ended, whether it has found a solution or not. No output of the process is forwarded afterwards.
+	 */
+	public default void onSearchEnded(final String processId) {
+		// intentionally left blank.
+	}
+
+}
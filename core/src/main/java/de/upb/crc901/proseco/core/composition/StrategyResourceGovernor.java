@@ -0,0 +1,303 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.config.PROSECOConfig;
+import de.upb.crc901.proseco.commons.util.ProcessTree;
+
+/**
+ * Node-wide budget of cores and memory shared by the strategy processes of all compositions running in this JVM.
+ *
+ * A strategy process is only started once the governor has granted it the cores and memory declared in the prototype config. Requests are served in FIFO order, so a large strategy cannot be starved by smaller ones. Requests exceeding the whole
+ * budget are reduced to the budget. On Linux, processes can additionally be pinned to the granted CPUs with <code>taskset</code>. Only the CPUs this JVM is allowed to run on are handed out, so pinning also works in a cpuset-restricted
+ * container. If the budget has more CPUs than that, several of its CPUs share one real CPU.
+ */
+public class StrategyResourceGovernor {
+
+	private static final Logger L = LoggerFactory.getLogger(StrategyResourceGovernor.class);
+
+	private static final String[] TASKSET_LOCATIONS = { "/usr/bin/taskset", "/bin/taskset" };
+	private static final File PROC_SELF_STATUS = new File("/proc/self/status");
+	private static final int MAX_PINNING_ROUNDS = 3;
+
+	private static StrategyResourceGovernor instance;
+
+	private final int totalCPUs;
+	private final int totalMemoryInMB;
+	private final String taskset;
+	/* real CPU id for each CPU of the budget, null if processes are not pinned */
+	private final int[] cpuIds;
+
+	private final BitSet freeCPUs;
+	private int freeMemoryInMB;
+	private final Deque<Object> waiting = new ArrayDeque<>();
+
+	/**
+	 * @return The governor of this node. It is created from the given config on first access; later calls share this instance.
+	 */
+	public static synchronized StrategyResourceGovernor get(final PROSECOConfig config) {
+		if (instance == null) {
+			int cpus = config.getNodeCPUs() > 0 ? config.getNodeCPUs() : Runtime.getRuntime().availableProcessors();
+			int memory = config.getNodeMemoryInMB() > 0 ? config.getNodeMemoryInMB() : detectPhysicalMemoryInMB();
+			instance = new StrategyResourceGovernor(cpus, memory, config.isCPUPinningEnabled());
+		}
+		return instance;
+	}
+
+	public StrategyResourceGovernor(final int totalCPUs, final int totalMemoryInMB, final boolean pinProcesses) {
+		this.totalCPUs = Math.max(1, totalCPUs);
+		this.totalMemoryInMB = Math.max(1, totalMemoryInMB);
+		this.freeCPUs = new BitSet(this.totalCPUs);
+		this.freeCPUs.set(0, this.totalCPUs);
+		this.freeMemoryInMB = this.totalMemoryInMB;
+		int[] allowedCPUs = pinProcesses ? readAllowedCPUs() : null;
+		String tasksetLocation = allowedCPUs != null ? findTaskset() : null;
+		if (tasksetLocation != null && !canPin(tasksetLocation, allowedCPUs[0])) {
+			L.warn("taskset cannot pin processes to CPU {}, strategy processes will not be pinned to CPUs.", allowedCPUs[0]);
+			tasksetLocation = null;
+		}
+		this.taskset = tasksetLocation;
+		if (this.taskset != null) {
+			this.cpuIds = new int[this.totalCPUs];
+			for (int cpu = 0; cpu < this.totalCPUs; cpu++) {
+				this.cpuIds[cpu] = allowedCPUs[cpu % allowedCPUs.length];
+			}
+		} else {
+			this.cpuIds = null;
+		}
+		L.info("Strategy budget of this node: {} CPUs, {}MB memory, pinning via taskset {}.", this.totalCPUs, this.totalMemoryInMB, this.taskset != null ? "enabled" : "disabled");
+	}
+
+	/**
+	 * Blocks until the requested resources are available or the deadline has passed.
+	 *
+	 * @param deadline
+	 *            Absolute point in time (as of {@link System#currentTimeMillis()}) up to which the caller is willing to wait.
+	 * @return The lease, or <code>null</code> if the resources could not be granted before the deadline.
+	 */
+	public ResourceLease acquire(final String holder, final int cpus, final int memoryInMB, final long deadline) throws InterruptedException {
+		int requestedCPUs = Math.min(Math.max(1, cpus), this.totalCPUs);
+		int requestedMemory = Math.min(Math.max(0, memoryInMB), this.totalMemoryInMB);
+		Object ticket = new Object();
+		synchronized (this) {
+			this.waiting.addLast(ticket);
+			try {
+				while (this.waiting.peekFirst() != ticket || this.freeCPUs.cardinality() < requestedCPUs || this.freeMemoryInMB < requestedMemory) {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0) {
+						L.warn("Could not grant {} CPUs and {}MB to {} before the deadline.", requestedCPUs, requestedMemory, holder);
+						return null;
+					}
+					this.wait(remaining);
+				}
+				return this.grant(holder, requestedCPUs, requestedMemory);
+			} finally {
+				this.waiting.remove(ticket);
+				this.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Grants the requested resources only if they are idle right now, i.e. free and not awaited by any other request.
+	 *
+	 * @return The lease, or <code>null</code> if the resources are not idle.
+	 */
+	public synchronized ResourceLease tryAcquire(final String holder, final int cpus, final int memoryInMB) {
+		int requestedCPUs = Math.min(Math.max(1, cpus), this.totalCPUs);
+		int requestedMemory = Math.min(Math.max(0, memoryInMB), this.totalMemoryInMB);
+		if (!this.waiting.isEmpty() || this.freeCPUs.cardinality() < requestedCPUs || this.freeMemoryInMB < requestedMemory) {
+			return null;
+		}
+		return this.grant(holder, requestedCPUs, requestedMemory);
+	}
+
+	private ResourceLease grant(final String holder, final int requestedCPUs, final int requestedMemory) {
+		BitSet granted = new BitSet(this.totalCPUs);
+		for (int cpu = this.freeCPUs.nextSetBit(0), n = 0; n < requestedCPUs; cpu = this.freeCPUs.nextSetBit(cpu + 1), n++) {
+			granted.set(cpu);
+		}
+		this.freeCPUs.andNot(granted);
+		this.freeMemoryInMB -= requestedMemory;
+		ResourceLease lease = new ResourceLease(this, holder, granted, this.toCPUList(granted), requestedMemory);
+		L.debug("Granted {}. Free: {} CPUs, {}MB.", lease, this.freeCPUs.cardinality(), this.freeMemoryInMB);
+		return lease;
+	}
+
+	/**
+	 * @return The real ids of the given CPUs of the budget in the list format of <code>taskset -c</code>, e.g. <code>0,1,4</code>.
+	 */
+	private String toCPUList(final BitSet cpus) {
+		BitSet ids = new BitSet();
+		for (int cpu = cpus.nextSetBit(0); cpu >= 0; cpu = cpus.nextSetBit(cpu + 1)) {
+			ids.set(this.cpuIds != null ? this.cpuIds[cpu] : cpu);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(id);
+		}
+		return sb.toString();
+	}
+
+	synchronized void release(final ResourceLease lease) {
+		this.freeCPUs.or(lease.getCPUs());
+		this.freeMemoryInMB += lease.getMemoryInMB();
+		L.debug("Released {}. Free: {} CPUs, {}MB.", lease, this.freeCPUs.cardinality(), this.freeMemoryInMB);
+		this.notifyAll();
+	}
+
+	/**
+	 * @return The command prefixed with a <code>taskset</code> call that pins the process to the CPUs of the lease, or the unchanged command if pinning is not available.
+	 */
+	public String[] restrictCommand(final String[] command, final ResourceLease lease) {
+		if (this.taskset == null) {
+			return command;
+		}
+		List<String> restrictedCommand = new ArrayList<>(command.length + 3);
+		restrictedCommand.add(this.taskset);
+		restrictedCommand.add("-c");
+		restrictedCommand.add(lease.getCPUList());
+		restrictedCommand.addAll(Arrays.asList(command));
+		return restrictedCommand.toArray(new String[restrictedCommand.size()]);
+	}
+
+	/**
+	 * Pins a process that is already running, together with all of its threads and descendants, to the CPUs of the lease. The descendants matter if the process is a script that has started the actual program as a
+	 * child. Processes forked after their parent has been pinned inherit its CPUs. Nothing happens if pinning is not available.
+	 */
+	public void restrictProcess(final Process process, final ResourceLease lease) throws InterruptedException {
+		long pid = ProcessTree.getPid(process);
+		if (this.taskset == null || pid < 0) {
+			return;
+		}
+		List<Long> pinned = new ArrayList<>();
+		this.pin(pid, lease);
+		pinned.add(pid);
+
+		/* a descendant may have forked a child right before it has been pinned itself, so look again until no new one shows up */
+		for (int round = 0; round < MAX_PINNING_ROUNDS; round++) {
+			List<Long> unpinned = ProcessTree.getDescendants(pid);
+			unpinned.removeAll(pinned);
+			if (unpinned.isEmpty()) {
+				return;
+			}
+			for (long descendant : unpinned) {
+				this.pin(descendant, lease);
+				pinned.add(descendant);
+			}
+		}
+	}
+
+	private void pin(final long pid, final ResourceLease lease) throws InterruptedException {
+		try {
+			Process taskset = new ProcessBuilder(this.taskset, "-a", "-p", "-c", lease.getCPUList(), String.valueOf(pid)).redirectErrorStream(true).start();
+			if (taskset.waitFor() != 0) {
+				L.warn("Could not pin process {} to CPUs {}.", pid, lease.getCPUList());
+			}
+		} catch (IOException e) {
+			L.warn("Could not pin process {} to CPUs {}: {}", pid, lease.getCPUList(), e.getMessage());
+		}
+	}
+
+	public int getTotalCPUs() {
+		return this.totalCPUs;
+	}
+
+	public int getTotalMemoryInMB() {
+		return this.totalMemoryInMB;
+	}
+
+	/**
+	 * @return Whether a CPU is free and no request is waiting for resources, i.e. whether background work would not delay any strategy right now.
+	 */
+	public synchronized boolean isIdle() {
+		return this.waiting.isEmpty() && !this.freeCPUs.isEmpty();
+	}
+
+	public synchronized int getFreeCPUs() {
+		return this.freeCPUs.cardinality();
+	}
+
+	public synchronized int getFreeMemoryInMB() {
+		return this.freeMemoryInMB;
+	}
+
+	private static String findTaskset() {
+		if (!System.getProperty("os.name", "").toLowerCase().contains("linux")) {
+			return null;
+		}
+		for (String location : TASKSET_LOCATIONS) {
+			if (new File(location).canExecute()) {
+				return location;
+			}
+		}
+		L.info("taskset is not available, strategy processes will not be pinned to CPUs.");
+		return null;
+	}
+
+	/**
+	 * @return The ids of the CPUs this JVM may run on according to <code>Cpus_allowed_list</code>, or <code>null</code> if they cannot be determined.
+	 */
+	private static int[] readAllowedCPUs() {
+		if (!PROC_SELF_STATUS.canRead()) {
+			return null;
+		}
+		try {
+			for (String line : Files.readAllLines(PROC_SELF_STATUS.toPath(), StandardCharsets.US_ASCII)) {
+				if (line.startsWith("Cpus_allowed_list:")) {
+					BitSet allowed = new BitSet();
+					for (String range : line.substring(line.indexOf(':') + 1).trim().split(",")) {
+						String[] bounds = range.trim().split("-");
+						int from = Integer.parseInt(bounds[0]);
+						int to = bounds.length > 1 ? Integer.parseInt(bounds[1]) : from;
+						allowed.set(from, to + 1);
+					}
+					return allowed.isEmpty() ? null : allowed.stream().toArray();
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			L.warn("Could not read the CPUs this JVM may run on: {}", e.getMessage());
+		}
+		L.info("The CPUs this JVM may run on are unknown, strategy processes will not be pinned to CPUs.");
+		return null;
+	}
+
+	private static boolean canPin(final String taskset, final int cpu) {
+		try {
+			Process probe = new ProcessBuilder(taskset, "-c", String.valueOf(cpu), "true").redirectErrorStream(true).start();
+			probe.getInputStream().close();
+			return probe.waitFor() == 0;
+		} catch (IOException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static int detectPhysicalMemoryInMB() {
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			return (int) (((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize() / (1024 * 1024));
+		}
+		L.warn("Could not determine the physical memory of this node, memory will not be limited.");
+		return Integer.MAX_VALUE;
+	}
+}
@@ -0,0 +1,248 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.upb.crc901.proseco.commons.util.ProcessSample;
+import de.upb.crc901.proseco.commons.util.ProcessTree;
+
+/**
+ * Tracks the process trees of the strategies of one composition and accounts their resource usage.
+ *
+ * Every second, the descendants of each strategy process are determined and sampled. Descendants are remembered, so they can still be terminated after they have been orphaned. When a strategy has terminated, its remaining
+ * descendants are killed and its wall time, CPU time and peak resident memory are written to <code>resources.json</code> in its output folder. All strategies of all compositions are sampled by one shared thread.
+ *
+ * The CPU time of a process includes that of its children which it has waited for, so children living shorter than the sampling interval are accounted as well. A process that has been reaped by a parent sampled
+ * afterwards is not counted separately, since its time is contained in that of the parent.
+ */
+public class StrategyResourceMonitor {
+
+	private static final Logger L = LoggerFactory.getLogger(StrategyResourceMonitor.class);
+
+	public static final String RESOURCES_FILE = "resources.json";
+
+	private static final long SAMPLE_INTERVAL_IN_MS = 1000;
+
+	private static final ScheduledExecutorService SAMPLER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "strategy-resource-sampler");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final Map<String, StrategyUsage> usages = new ConcurrentHashMap<>();
+	private ScheduledFuture<?> samplingTask;
+
+	/**
+	 * Starts tracking the process of a strategy.
+	 */
+	public synchronized void track(final String strategyName, final Process process, final File outputDirectory) {
+		this.usages.put(strategyName, new StrategyUsage(strategyName, ProcessTree.getPid(process), outputDirectory));
+		if (this.samplingTask == null) {
+			this.samplingTask = SAMPLER.scheduleWithFixedDelay(this::sampleAll, 0, SAMPLE_INTERVAL_IN_MS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * @return The last samples of the descendants seen so far of all strategies that are still being tracked, skipping those whose pid has been reused in the meantime.
+	 */
+	public List<ProcessSample> getKnownDescendants() {
+		List<ProcessSample> descendants = new ArrayList<>();
+		for (StrategyUsage usage : this.usages.values()) {
+			synchronized (usage) {
+				for (ProcessRecord record : usage.records.values()) {
+					if (record.sample.getPid() != usage.rootPid && isSameProcess(record.sample)) {
+						descendants.add(record.sample);
+					}
+				}
+			}
+		}
+		return descendants;
+	}
+
+	/**
+	 * Called when the process of the strategy has terminated: kills its remaining descendants and writes the resource report. This happens asynchronously on the sampling thread.
+	 */
+	public void finish(final String strategyName) {
+		StrategyUsage usage = this.usages.get(strategyName);
+		if (usage == null) {
+			return;
+		}
+		usage.endTime = System.currentTimeMillis();
+		SAMPLER.execute(() -> {
+			this.sample(usage);
+			List<ProcessSample> leftovers = new ArrayList<>();
+			synchronized (usage) {
+				for (ProcessRecord record : usage.records.values()) {
+					if (record.sample.getPid() != usage.rootPid && isSameProcess(record.sample)) {
+						leftovers.add(record.sample);
+					}
+				}
+			}
+			if (!leftovers.isEmpty()) {
+				L.info("Strategy {} has terminated, killing its remaining descendants {}", strategyName, leftovers.stream().map(ProcessSample::getPid).collect(Collectors.toList()));
+				try {
+					ProcessTree.terminate(new ArrayList<>(), leftovers, 0);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			this.writeReport(usage);
+			this.usages.remove(strategyName);
+			synchronized (this) {
+				if (this.usages.isEmpty() && this.samplingTask != null) {
+					this.samplingTask.cancel(false);
+					this.samplingTask = null;
+				}
+			}
+		});
+	}
+
+	private void sampleAll() {
+		for (StrategyUsage usage : this.usages.values()) {
+			if (usage.endTime < 0) {
+				this.sample(usage);
+			}
+		}
+	}
+
+	private void sample(final StrategyUsage usage) {
+		if (usage.rootPid < 0) {
+			return;
+		}
+		Set<Long> pids = new LinkedHashSet<>();
+		pids.add(usage.rootPid);
+		pids.addAll(ProcessTree.getDescendants(usage.rootPid));
+		synchronized (usage) {
+			usage.round++;
+			/* processes that have been reaped since the last round; their parents are sampled below, after the reaping */
+			for (Iterator<ProcessRecord> it = usage.records.values().iterator(); it.hasNext();) {
+				ProcessRecord record = it.next();
+				if (!isSameProcess(record.sample)) {
+					record.endRound = usage.round;
+					usage.endedRecords.add(record);
+					it.remove();
+				}
+			}
+			/* orphaned descendants are not found from the root anymore */
+			for (ProcessRecord known : usage.records.values()) {
+				if (!pids.contains(known.sample.getPid())) {
+					pids.add(known.sample.getPid());
+					pids.addAll(ProcessTree.getDescendants(known.sample.getPid()));
+				}
+			}
+
+			long rss = 0;
+			for (Long pid : pids) {
+				ProcessSample sample = ProcessTree.sample(pid);
+				if (sample == null) {
+					continue;
+				}
+				ProcessRecord record = usage.records.get(pid);
+				if (record == null || record.sample.getStartTime() != sample.getStartTime()) {
+					if (record != null) {
+						/* the pid has been reused since the check above */
+						record.endRound = usage.round;
+						usage.endedRecords.add(record);
+					}
+					record = new ProcessRecord();
+					usage.records.put(pid, record);
+				}
+				record.sample = sample;
+				record.round = usage.round;
+				record.parent = usage.records.get(sample.getParentPid());
+				rss += sample.getRssInBytes();
+			}
+			usage.peakRssInBytes = Math.max(usage.peakRssInBytes, rss);
+		}
+	}
+
+	private static boolean isSameProcess(final ProcessSample known) {
+		ProcessSample current = ProcessTree.sample(known.getPid());
+		return current != null && current.getStartTime() == known.getStartTime();
+	}
+
+	private void writeReport(final StrategyUsage usage) {
+		Map<String, Object> report = new LinkedHashMap<>();
+		synchronized (usage) {
+			long cpuTime = 0;
+			for (ProcessRecord record : usage.records.values()) {
+				cpuTime += record.getCpuTimeInMS();
+			}
+			for (ProcessRecord record : usage.endedRecords) {
+				if (!record.isReapedByParent()) {
+					cpuTime += record.getCpuTimeInMS();
+				}
+			}
+			report.put("strategy", usage.strategyName);
+			report.put("wallTimeInMS", (usage.endTime > 0 ? usage.endTime : System.currentTimeMillis()) - usage.startTime);
+			report.put("cpuTimeInMS", cpuTime);
+			report.put("peakRssInBytes", usage.peakRssInBytes);
+			report.put("processes", usage.records.size() + usage.endedRecords.size());
+		}
+		try {
+			new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(new File(usage.outputDirectory, RESOURCES_FILE), report);
+			L.info("Resource usage of strategy {}: {}", usage.strategyName, report);
+		} catch (IOException e) {
+			L.warn("Could not write resource report of strategy {}: {}", usage.strategyName, e.getMessage());
+		}
+	}
+
+	private static class StrategyUsage {
+		private final String strategyName;
+		private final long rootPid;
+		private final File outputDirectory;
+		private final long startTime = System.currentTimeMillis();
+		private volatile long endTime = -1;
+		/* live processes by pid */
+		private final Map<Long, ProcessRecord> records = new HashMap<>();
+		private final List<ProcessRecord> endedRecords = new ArrayList<>();
+		private long round = 0;
+		private long peakRssInBytes = 0;
+
+		StrategyUsage(final String strategyName, final long rootPid, final File outputDirectory) {
+			this.strategyName = strategyName;
+			this.rootPid = rootPid;
+			this.outputDirectory = outputDirectory;
+		}
+	}
+
+	/**
+	 * The last sample of a single process together with the round it has been taken in and, once the process has been reaped, the round it has been found missing in.
+	 */
+	private static class ProcessRecord {
+		private ProcessSample sample;
+		private ProcessRecord parent;
+		private long round;
+		private long endRound = -1;
+
+		private long getCpuTimeInMS() {
+			return this.sample.getCpuTimeInMS() + this.sample.getChildrenCpuTimeInMS();
+		}
+
+		/**
+		 * @return Whether the parent has been sampled after the process has been reaped, so its CPU time is contained in the children's CPU time of the parent.
+		 */
+		private boolean isReapedByParent() {
+			return this.parent != null && this.parent.round >= this.endRound;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Replacement for {@link System#out} and {@link System#err} that writes the output of threads in a thread group bound to a console to the streams of that console, and all other output to the original stream. Threads
+ * started by a thread of the group belong to it as well, so the output of an {@link InProcessStrategy} is captured completely.
+ *
+ * The binding is looked up on every write instead of being copied into the threads. A long-lived thread that a strategy happens to create, e.g. a worker of the common {@link ForkJoinPool}, thus writes to the original
+ * stream again once the strategy has ended. Workers of the common pool are shared by all code of the JVM, so their output is never attributed to a strategy.
+ */
+final class ThreadConsole extends OutputStream {
+
+	private static final Map<ThreadGroup, OutputStream[]> CONSOLES = new ConcurrentHashMap<>();
+
+	private static boolean installed = false;
+
+	private final OutputStream original;
+	private final int stream;
+
+	private ThreadConsole(final OutputStream original, final int stream) {
+		this.original = original;
+		this.stream = stream;
+	}
+
+	/**
+	 * Replaces the system streams; only the first call has an effect.
+	 */
+	static synchronized void install() {
+		if (installed) {
+			return;
+		}
+		System.setOut(new PrintStream(new ThreadConsole(System.out, 0), true));
+		System.setErr(new PrintStream(new ThreadConsole(System.err, 1), true));
+		installed = true;
+	}
+
+	/**
+	 * Binds the threads of the given group and its subgroups to the given streams.
+	 */
+	static void bind(final ThreadGroup group, final OutputStream out, final OutputStream err) {
+		CONSOLES.put(group, new OutputStream[] { out, err });
+	}
+
+	static void unbind(final ThreadGroup group) {
+		CONSOLES.remove(group);
+	}
+
+	private OutputStream target() {
+		if (CONSOLES.isEmpty()) {
+			return this.original;
+		}
+		Thread thread = Thread.currentThread();
+		if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == ForkJoinPool.commonPool()) {
+			return this.original;
+		}
+		for (ThreadGroup group = thread.getThreadGroup(); group != null; group = group.getParent()) {
+			OutputStream[] console = CONSOLES.get(group);
+			if (console != null) {
+				return console[this.stream];
+			}
+		}
+		return this.original;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		this.target().write(b);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		this.target().write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.target().flush();
+	}
+}
@@ -0,0 +1,144 @@
+package de.upb.crc901.proseco.core.composition;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.config.PROSECOConfig;
+
+/**
+ * Keeps pre-started {@link SearchStrategyWorker workers} for the strategies that provide a worker runnable, so a composition can hand its job to a warm JVM instead of starting the strategy from scratch.
+ *
+ * Each worker serves a single job and then terminates like a regular strategy process. This keeps compositions isolated from each other and lets the executor forward, monitor and terminate workers exactly like other
+ * strategy processes. Whenever a worker is taken, a replacement is started in the background. The first composition of a strategy therefore starts it cold, later ones find a warm worker.
+ *
+ * Spares are not covered by the budget of the {@link StrategyResourceGovernor}. Their number is therefore capped for the whole node, and a replacement is only started while the governor is idle, so starting JVMs never
+ * competes with strategies waiting for cores. A spare discards its output until it receives its job (see {@link SearchStrategyWorker}), so its pipes cannot fill up while nobody reads them.
+ */
+public class WarmWorkerPool {
+
+	private static final Logger L = LoggerFactory.getLogger(WarmWorkerPool.class);
+
+	private static WarmWorkerPool instance;
+
+	private final int sparesPerStrategy;
+	private final int maxSpares;
+	private final StrategyResourceGovernor governor;
+
+	/* spare workers by the canonical path of their worker runnable */
+	private final Map<String, Deque<Process>> spares = new HashMap<>();
+
+	private final ExecutorService starter = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "warm-worker-starter");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * @return The worker pool of this node. It is created from the given config on first access; later calls share this instance.
+	 */
+	public static synchronized WarmWorkerPool get(final PROSECOConfig config) {
+		if (instance == null) {
+			instance = new WarmWorkerPool(config.getNumberOfWarmWorkersPerStrategy(), config.getMaxNumberOfWarmWorkers(), StrategyResourceGovernor.get(config));
+		}
+		return instance;
+	}
+
+	public WarmWorkerPool(final int sparesPerStrategy, final int maxSpares, final StrategyResourceGovernor governor) {
+		this.sparesPerStrategy = Math.max(0, sparesPerStrategy);
+		this.maxSpares = Math.max(0, maxSpares);
+		this.governor = governor;
+		Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "warm-worker-shutdown"));
+	}
+
+	/**
+	 * Takes a warm worker started with the given runnable and starts a replacement for it.
+	 *
+	 * @return A waiting worker, or <code>null</code> if none is available yet and the strategy has to be started with its regular runnable.
+	 */
+	public Process take(final File workerRunnable) throws IOException {
+		if (this.sparesPerStrategy == 0 || this.maxSpares == 0) {
+			return null;
+		}
+		String key = workerRunnable.getCanonicalPath();
+		Process worker = null;
+		synchronized (this) {
+			Deque<Process> waitingWorkers = this.spares.computeIfAbsent(key, k -> new ArrayDeque<>());
+			while (worker == null && !waitingWorkers.isEmpty()) {
+				worker = waitingWorkers.poll();
+				if (!worker.isAlive()) {
+					L.warn("Discarding warm worker of {} that terminated with exit code {} while waiting for a job.", key, worker.exitValue());
+					worker = null;
+				}
+			}
+		}
+		this.starter.execute(() -> this.replenish(key));
+		if (worker == null) {
+			L.debug("No warm worker available for {}.", key);
+		}
+		return worker;
+	}
+
+	private void replenish(final String key) {
+		File workerRunnable = new File(key);
+		while (true) {
+			synchronized (this) {
+				if (this.spares.get(key).size() >= this.sparesPerStrategy || this.getNumberOfSpares() >= this.maxSpares) {
+					return;
+				}
+			}
+			if (!this.governor.isIdle()) {
+				/* tried again when the next worker is taken */
+				L.debug("Not starting a warm worker for {} while strategies are waiting for cores.", key);
+				return;
+			}
+			Process worker;
+			try {
+				workerRunnable.setExecutable(true);
+				worker = new ProcessBuilder(workerRunnable.getAbsolutePath()).redirectOutput(Redirect.PIPE).redirectError(Redirect.PIPE).start();
+			} catch (IOException e) {
+				L.warn("Could not start warm worker {}: {}", key, e.getMessage());
+				return;
+			}
+			synchronized (this) {
+				this.spares.get(key).add(worker);
+			}
+			L.debug("Started warm worker {}.", key);
+		}
+	}
+
+	private synchronized int getNumberOfSpares() {
+		int numberOfSpares = 0;
+		for (Deque<Process> workers : this.spares.values()) {
+			numberOfSpares += workers.size();
+		}
+		return numberOfSpares;
+	}
+
+	/**
+	 * Ends all workers that are still waiting for a job.
+	 */
+	public void shutdown() {
+		List<Process> waitingWorkers = new ArrayList<>();
+		synchronized (this) {
+			for (Deque<Process> workers : this.spares.values()) {
+				waitingWorkers.addAll(workers);
+				workers.clear();
+			}
+		}
+		for (Process worker : waitingWorkers) {
+			worker.destroy();
+		}
+	}
+}
@@ -21,11 +21,16 @@ ProsecoApp.controller('ProsecoAppController', ['$scope', '$http', '$timeout', '$
 	this.logList = [];
 	this.result = {
 			"remainingTime": null,
+			"queuePosition": -1,
 			"serviceHandle": null,
 			"isComplete": false
 	};
+	this.incumbent = null;
 	this.autoScroll = true;
 	this.showConsoles = true;
+	this.logStream = null;
+	this.logStreamed = false;
+	this.stateStream = null;
 	
 	this.getShowConsoles = function() {
 		return this.showConsoles;
@@ -44,6 +49,14 @@ ProsecoApp.controller('ProsecoAppController', ['$scope', '$http', '$timeout', '$
 		return this.result.remainingTime > 0;
 	}
 	
+	this.isQueued = function() {
+		return this.result.queuePosition > 0;
+	}
+	
+	this.getQueuePosition = function() {
+		return this.result.queuePosition;
+	}
+	
 	this.getRemainingTime = function() {
 		return this.result.remainingTime;
 	}
@@ -56,6 +69,14 @@ ProsecoApp.controller('ProsecoAppController', ['$scope', '$http', '$timeout', '$
 		return this.result.isComplete;
 	}
 	
+	this.hasIncumbent = function() {
+		return this.incumbent !== null && this.incumbent.strategy !== null;
+	}
+	
+	this.getIncumbent = function() {
+		return this.incumbent;
+	}
+	
 	this.showDebugTable = function() {
 		return this.debugTableFlag;
 	};
@@ -146,6 +167,39 @@ ProsecoApp.controller('ProsecoAppController', ['$scope', '$http', '$timeout', '$
     	});
 	};
 	
+	this.isStateStreamOpen = function() {
+		return self.stateStream !== null && self.stateStream.readyState !== 2;
+	};
+	
+	this.subscribeStateStream = function() {
+		if(typeof(EventSource) === "undefined" || self.isStateStreamOpen() || self.processID === undefined || self.processID === null) {
+			return;
+		}
+		self.stateStream = new EventSource('/api/process/'+self.processID+'/events');
+		self.stateStream.addEventListener('state', function(event) {
+			let data = JSON.parse(event.data);
+			$scope.$apply(function() {
+				if(data.status !== null) {
+					self.prosecoStatus = data.status;
+				}
+				if(data.isComplete) {
+					self.result.isComplete = true;
+					self.result.serviceHandle = data.serviceHandle;
+					self.showConsoles = false;
+				}
+			});
+			if(data.status === "done") {
+				self.stateStream.close();
+			}
+		});
+		self.stateStream.addEventListener('incumbent', function(event) {
+			let data = JSON.parse(event.data);
+			$scope.$apply(function() {
+				self.incumbent = data;
+			});
+		});
+	};
+	
 	this.getProcessID = function(cb = 'NaN') {
 		var url = $location.$$absUrl;
 		if(url.split("/").length == 5) {
@@ -194,6 +248,7 @@ ProsecoApp.controller('ProsecoAppController', ['$scope', '$http', '$timeout', '$
 			self.result.isComplete = response.data.isComplete == "true";
 			self.result.serviceHandle = response.data.serviceHandle;
 			self.result.remainingTime = parseInt(response.data.remainingTime);
+			self.result.queuePosition = parseInt(response.data.queuePosition);
 			
 			if(self.result.isComplete) {
 				self.showConsoles = false;
@@ -236,6 +291,57 @@ ProsecoApp.controller('ProsecoAppController', ['$scope', '$http', '$timeout', '$
     	});
 	};
 	
+	this.isLogStreamOpen = function() {
+		return self.logStream !== null && self.logStream.readyState !== 2;
+	};
+	
+	this.subscribeLogStream = function() {
+		if(typeof(EventSource) === "undefined" || self.isLogStreamOpen()) {
+			return;
+		}
+		self.logStream = new EventSource('/api/strategyLogs/'+self.processID+'/stream');
+		self.logStream.addEventListener('backlog', function(event) {
+			let backlog = JSON.parse(event.data);
+			$scope.$apply(function() {
+				self.logStreamed = true;
+				self.logList = [];
+				for(let i in backlog) {
+					self.appendStreamedLog(backlog[i]);
+				}
+			});
+		});
+		self.logStream.addEventListener('log', function(event) {
+			let data = JSON.parse(event.data);
+			$scope.$apply(function() {
+				self.appendStreamedLog(data);
+			});
+		});
+		self.logStream.addEventListener('end', function(event) {
+			self.logStream.close();
+		});
+	};
+	
+	this.appendStreamedLog = function(data) {
+		let strategyLog = null;
+		for(let logIx in self.logList) {
+			if(self.logList[logIx].strategyName === data.strategyName) {
+				strategyLog = self.logList[logIx];
+			}
+		}
+		if(strategyLog === null) {
+			strategyLog = new StrategyLog(data.strategyName, "", "", "", "", "all");
+			self.logList.push(strategyLog);
+		}
+		if(data.stream === "err") {
+			let lines = '<span style="color:red">' + data.lines + '</span>';
+			strategyLog.sysErr += lines;
+			strategyLog.sysAll += lines;
+		} else {
+			strategyLog.sysOut += data.lines;
+			strategyLog.sysAll += data.lines;
+		}
+	};
+	
 	this.getAutoScroll = function() {
 		return this.autoScroll;
 	}
@@ -255,15 +361,21 @@ ProsecoApp.controller('ProsecoAppController', ['$scope', '$http', '$timeout', '$
 	}
 	
     $timeout(function() {
-		self.getProcessID(self.getProsecoStatus);
+		self.getProcessID(function() {
+			self.getProsecoStatus();
+			self.subscribeStateStream();
+		});
     });
     
     
     $interval(function() {
-    	if(self.prosecoStatus !== "done") {
+    	if(self.prosecoStatus !== "done" && !self.isStateStreamOpen()) {
     		self.getProsecoStatus();
     	}
-    	if(self.prosecoStatus === "search" || self.prosecoStatus === "grounding" || self.prosecoStatus === "deployment" || self.prosecoStatus === "done") {
+    	if(self.prosecoStatus === "search") {
+    		self.subscribeLogStream();
+    	}
+    	if((self.prosecoStatus === "search" || self.prosecoStatus === "grounding" || self.prosecoStatus === "deployment" || self.prosecoStatus === "done") && !self.isLogStreamOpen() && !self.logStreamed) {
     		self.getLogs();
     	}
     	if(self.autoScroll) {
@@ -275,7 +387,14 @@ ProsecoApp.controller('ProsecoAppController', ['$scope', '$http', '$timeout', '$
     
     $interval(function() {
     	if(!self.result.isComplete && (self.prosecoStatus === "search" || self.prosecoStatus === "grounding" || self.prosecoStatus === "deployment" || self.prosecoStatus === "done")) {
-    		self.pullResult();
+    		if(self.isStateStreamOpen() && self.result.remainingTime !== null && !isNaN(self.result.remainingTime) && self.result.remainingTime !== -1 && !self.isQueued()) {
+    			/* completion is pushed by the state stream, so the countdown can run locally */
+    			if(self.result.remainingTime > 0) {
+    				self.result.remainingTime--;
+    			}
+    		} else {
+    			self.pullResult();
+    		}
     	}
     }, 1000);
 }]);
\ No newline at end of file
@@ -3,6 +3,9 @@ package de.upb.crc901.proseco.view.app.controller;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -17,20 +20,23 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import de.upb.crc901.proseco.commons.config.GlobalConfig;
 import de.upb.crc901.proseco.commons.config.PROSECOConfig;
-import de.upb.crc901.proseco.commons.controller.DefaultProcessController;
-import de.upb.crc901.proseco.commons.controller.ProcessController;
+import de.upb.crc901.proseco.commons.console.EConsoleStream;
 import de.upb.crc901.proseco.commons.util.PROSECOProcessEnvironment;
+import de.upb.crc901.proseco.core.composition.PortAllocator;
 import de.upb.crc901.proseco.view.app.model.LogPair;
 import de.upb.crc901.proseco.view.app.model.LogResponseBody;
+import de.upb.crc901.proseco.view.app.stream.StrategyLogPublisher;
 import de.upb.crc901.proseco.commons.processstatus.ProcessStateProvider;
 import de.upb.crc901.proseco.commons.util.FileUtil;
 import de.upb.crc901.proseco.view.util.LogLine;
 import de.upb.crc901.proseco.view.util.LogLineTracker;
+import de.upb.crc901.proseco.view.util.LogTail;
+import de.upb.crc901.proseco.view.util.LogTailer;
 import de.upb.crc901.proseco.commons.util.ToJSONStringUtil;
 
 /**
@@ -46,16 +52,9 @@ public class APIController {
 	/* logging. */
 	private static final Logger L = LoggerFactory.getLogger(APIController.class);
 
-	/*
-	 * Config for basic properties of proseco's environment, e.g., paths to common
-	 * properties files.
-	 */
-	private static final GlobalConfig PROSECO_ENV_CONFIG = ConfigCache.getOrCreate(GlobalConfig.class);
-
 	private final PROSECOConfig config = ConfigCache.getOrCreate(PROSECOConfig.class);
 
-	private final ProcessController processController = new DefaultProcessController(
-			PROSECO_ENV_CONFIG.prosecoConfigFile());
+	private final StrategyLogPublisher logPublisher = new StrategyLogPublisher();
 
 	/**
 	 * Returns SystemOut and SystemError logs of Strategies of prototype with the
@@ -89,6 +88,18 @@ public class APIController {
 				Arrays.asList(ToJSONStringUtil.parseObjectToJsonNode(result, new ObjectMapper())), HttpStatus.OK);
 	}
 
+	/**
+	 * Streams the console lines of the strategies of the process with the given
+	 * ID as server-sent events while they are written
+	 *
+	 * @param id
+	 * @return
+	 */
+	@GetMapping("/api/strategyLogs/{id}/stream")
+	public SseEmitter streamStrategyLogs(@PathVariable("id") final String id) {
+		return this.logPublisher.subscribe(id);
+	}
+
 	/**
 	 * Finds the deployed web application for with the given session id and kills
 	 * the process.
@@ -107,6 +118,7 @@ public class APIController {
 		} catch (IOException e) {
 			return "failure";
 		}
+		PortAllocator.get().release(id);
 
 		return result;
 	}
@@ -119,7 +131,7 @@ public class APIController {
 	 * @throws Exception
 	 */
 	private String getServiceLog(final String id) throws Exception {
-		PROSECOProcessEnvironment env = this.processController.getConstructionProcessEnvironment(id);
+		PROSECOProcessEnvironment env = ProcessStateProvider.getProcessEnvironment(id);
 		String serviceLogFile = env.getGroundingDirectory() + File.separator + this.config.getNameOfServiceLogFile();
 		String serviceLog = FileUtil.readFile(serviceLogFile);
 		return serviceLog;
@@ -224,20 +236,32 @@ public class APIController {
 			String systemErr = outputPathOfThisStrategy + File.separator + this.config.getSystemErrFileName();
 			String systemAll = outputPathOfThisStrategy + File.separator + this.config.getSystemMergedOutputFileName();
 
+			Path recordLog = Paths.get(outputPathOfThisStrategy, this.config.getConsoleRecordFileName());
+
 			LogLine logLine = LogLineTracker.getLogLines(id, strategyFolder.getName());
 
-			String outLog = FileUtil.readFileByLineNumber(systemOut, logLine.getOutLineNumber());
-			String errLog = FileUtil.readFileByLineNumber(systemErr, logLine.getErrLineNumber());
-			String allLog = FileUtil.readFileByLineNumber(systemAll, logLine.getAllLineNumber());
+			LogTail outLog;
+			LogTail errLog;
+			LogTail allLog;
+			if (Files.exists(recordLog)) {
+				/* both streams have been written to a single record-framed log, so demultiplex them here */
+				outLog = LogTailer.tail(recordLog, logLine.getOutCursor(), EConsoleStream.OUT);
+				errLog = LogTailer.tail(recordLog, logLine.getErrCursor(), EConsoleStream.ERR);
+				allLog = LogTailer.tail(recordLog, logLine.getAllCursor(), null);
+			} else {
+				outLog = LogTailer.tail(systemOut, logLine.getOutCursor());
+				errLog = LogTailer.tail(systemErr, logLine.getErrCursor());
+				allLog = LogTailer.tail(systemAll, logLine.getAllCursor());
+			}
 
 			logLine.setStrategyName(strategyFolder.getName());
-			logLine.setAllLineNumber(logLine.getAllLineNumber() + allLog.split("\n").length);
-			logLine.setErrLineNumber(logLine.getErrLineNumber() + errLog.split("\n").length);
-			logLine.setOutLineNumber(logLine.getOutLineNumber() + outLog.split("\n").length);
+			logLine.setOutCursor(outLog.getNextCursor());
+			logLine.setErrCursor(errLog.getNextCursor());
+			logLine.setAllCursor(allLog.getNextCursor());
 			LogLineTracker.updateLog(id, logLine);
 
-			if (outLog != null && errLog != null) {
-				LogPair logPair = new LogPair(env.getPrototypeName(), strategyFolder.getName(), outLog, errLog, allLog);
+			if (outLog.getContent() != null && errLog.getContent() != null) {
+				LogPair logPair = new LogPair(env.getPrototypeName(), strategyFolder.getName(), outLog.getContent(), errLog.getContent(), allLog.getContent() != null ? allLog.getContent() : "");
 				logList.add(logPair);
 			}
 		}
@@ -2,10 +2,11 @@ package de.upb.crc901.proseco.view.app.controller;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -29,19 +30,31 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.thymeleaf.util.StringUtils;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import de.upb.crc901.proseco.commons.config.PROSECOConfig;
 import de.upb.crc901.proseco.commons.controller.DefaultProcessController;
 import de.upb.crc901.proseco.commons.controller.ProcessController;
 import de.upb.crc901.proseco.commons.html.Script;
 import de.upb.crc901.proseco.commons.interview.InterviewFillout;
 import de.upb.crc901.proseco.commons.interview.Question;
 import de.upb.crc901.proseco.core.composition.CompositionAlgorithm;
+import de.upb.crc901.proseco.core.composition.CompositionJob;
+import de.upb.crc901.proseco.core.composition.CompositionJobScheduler;
+import de.upb.crc901.proseco.core.composition.IncumbentTracker;
 import de.upb.crc901.proseco.commons.util.PROSECOProcessEnvironment;
+import de.upb.crc901.proseco.view.app.model.EvaluationSnapshot;
 import de.upb.crc901.proseco.view.app.model.InterviewDTO;
 import de.upb.crc901.proseco.view.app.model.StrategyCandidateFoundEvent;
 import de.upb.crc901.proseco.view.app.model.StrategyCandidatesDatastore;
+import de.upb.crc901.proseco.view.app.stream.ProcessEventPublisher;
 import de.upb.crc901.proseco.commons.processstatus.EProcessState;
+import de.upb.crc901.proseco.commons.processstatus.ProcessDeadline;
 import de.upb.crc901.proseco.commons.processstatus.ProcessStateProvider;
 import de.upb.crc901.proseco.view.core.NextStateNotFoundException;
 import de.upb.crc901.proseco.view.core.Parser;
@@ -64,11 +77,14 @@ public class InterviewController {
 	private static final String ERROR_TEMPLATE = "error";
 
 	private static final String ROOT_TEMPLATE = "index";
+	private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+	private static final ObjectReader CANDIDATE_EVENT_READER = new ObjectMapper().readerFor(StrategyCandidateFoundEvent.class);
 	private ProcessController processController = new DefaultProcessController(new File("conf/proseco.conf"));
 
-	private final StrategyCandidatesDatastore datastore = new StrategyCandidatesDatastore();
-	private static final Map<String, PROSECOProcessEnvironment> envCache = new HashMap<>();
-	private static final Map<String, Long> deadlineCache = new HashMap<>();
+	private final StrategyCandidatesDatastore datastore = new StrategyCandidatesDatastore(PROSECOConfig.get(new File("conf/proseco.conf")).getCandidateRetentionLimit());
+	private final ProcessEventPublisher processEventPublisher = new ProcessEventPublisher();
+	private final CompositionJobScheduler jobScheduler = new CompositionJobScheduler(PROSECOConfig.get(new File("conf/proseco.conf")).getMaxConcurrentJobs(),
+			PROSECOConfig.get(new File("conf/proseco.conf")).getMaxQueuedJobs());
 
 	/**
 	 * Displays Interview initiator. Interview initiator is the step where the user inputs the required keywords for corresponding prototype to be found.
@@ -159,7 +175,7 @@ public class InterviewController {
 	 */
 	@PostMapping("/interview/{id}")
 	public String nextPost(@PathVariable("id") final String id, @ModelAttribute final InterviewDTO interviewDTO, @RequestParam(required = false, name = "response") final String response,
-			@RequestParam(required = false, name = "file") final MultipartFile file) throws Exception {
+			@RequestParam(required = false, name = "file") final MultipartFile file, final Model model) throws Exception {
 
 		/* retrieve the interview state */
 		logger.info("Receiving response {} and file {} for process id {}. Interview: {}", response, file, id, interviewDTO);
@@ -178,15 +194,21 @@ public class InterviewController {
 						System.err.println("No question with id 'timeout' has been answered, which is mandatory in PROSECO. The timeout must be an integer and will be interpreted in seconds!");
 						return;
 					}
-					deadlineCache.put(id, (System.currentTimeMillis() + 1000 * Long.parseLong(memorizedInterviewFillout.getAnswer("timeout"))));
-					CompositionAlgorithm pc = new CompositionAlgorithm(env, Integer.parseInt(memorizedInterviewFillout.getAnswer("timeout")));
+					ProcessDeadline deadline = ProcessDeadline.create(id, 1000 * Long.parseLong(memorizedInterviewFillout.getAnswer("timeout")));
+					CompositionAlgorithm pc = new CompositionAlgorithm(env, deadline);
 					pc.run();
 				} catch (Exception e) {
 					e.printStackTrace();
+				} finally {
+					ProcessDeadline.remove(id);
 				}
 			};
 			ProcessStateProvider.setProcessStatus(env.getProcessId(), EProcessState.SEARCH_STRATEGIES);
-			new Thread(task).start();
+			if (!this.jobScheduler.submit(new CompositionJob(env.getProcessId(), task))) {
+				ProcessStateProvider.setProcessStatus(env.getProcessId(), EProcessState.INTERVIEW);
+				model.addAttribute("errorMessage", "PROSECO is busy at the moment. Please try again later.");
+				return ERROR_TEMPLATE;
+			}
 			interviewDTO.setShowConfigurationPane(true);
 			interviewDTO.setShowConsole(true);
 			return RESULT_TEMPLATE;
@@ -255,7 +277,7 @@ public class InterviewController {
 	 * @throws Exception
 	 */
 	private void populateInterviewDTO(final InterviewDTO interviewDTO, final String id) throws Exception {
-		PROSECOProcessEnvironment env = this.processController.getConstructionProcessEnvironment(id);
+		PROSECOProcessEnvironment env = ProcessStateProvider.getProcessEnvironment(id);
 		InterviewFillout interview = SerializationUtil.readAsJSON(env.getInterviewStateFile());
 		interviewDTO.setInterviewFillout(interview);
 		interviewDTO.setProcessId(id);
@@ -269,7 +291,7 @@ public class InterviewController {
 	 * @throws Exception
 	 */
 	private void saveInterviewState(final InterviewDTO interviewDTO) throws Exception {
-		PROSECOProcessEnvironment env = this.processController.getConstructionProcessEnvironment(interviewDTO.getProcessId());
+		PROSECOProcessEnvironment env = ProcessStateProvider.getProcessEnvironment(interviewDTO.getProcessId());
 		SerializationUtil.writeAsJSON(env.getInterviewStateFile(), interviewDTO.getInterviewFillout());
 	}
 
@@ -282,12 +304,52 @@ public class InterviewController {
 		return new ResponseEntity<>(result, HttpStatus.OK);
 	}
 
+	/**
+	 * Receives a batch of candidate events of a strategy as JSON array.
+	 */
+	@RequestMapping(method = RequestMethod.POST, value = "/api/strategy/candidateEvals/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseBody
+	public ResponseEntity<Object> postCandidateFoundEvents(@PathVariable("id") final String id, @RequestBody final List<StrategyCandidateFoundEvent> events) {
+		return this.storeCandidateFoundEvents(id, events);
+	}
+
+	/**
+	 * Receives a batch of candidate events of a strategy as newline-delimited JSON, one event per line.
+	 */
+	@RequestMapping(method = RequestMethod.POST, value = "/api/strategy/candidateEvals/{id}", consumes = NDJSON_MEDIA_TYPE)
+	@ResponseBody
+	public ResponseEntity<Object> postCandidateFoundEventStream(@PathVariable("id") final String id, final InputStream body) throws IOException {
+		List<StrategyCandidateFoundEvent> events = new ArrayList<>();
+		try (MappingIterator<StrategyCandidateFoundEvent> it = CANDIDATE_EVENT_READER.readValues(body)) {
+			while (it.hasNextValue()) {
+				events.add(it.nextValue());
+			}
+		}
+		return this.storeCandidateFoundEvents(id, events);
+	}
+
+	private ResponseEntity<Object> storeCandidateFoundEvents(final String id, final List<StrategyCandidateFoundEvent> events) {
+		Map<String, Object> result = new HashMap<>();
+		logger.debug("Received batch of {} candidates from strategy {}", events.size(), id);
+		result.put("status", true);
+		result.put("received", this.datastore.putAll(id, events));
+		return new ResponseEntity<>(result, HttpStatus.OK);
+	}
+
 	@RequestMapping(method = RequestMethod.GET, value = "/api/strategy/EvaluationsByTimestamp/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
 	@ResponseBody
-	public ResponseEntity<Object> getEvaluationsSortedByTimestamp(@PathVariable("id") final String id) {
+	public ResponseEntity<Object> getEvaluationsSortedByTimestamp(@PathVariable("id") final String id, @RequestParam(required = false, name = "after") final Long after) {
 		Map<String, Object> result = new HashMap<>();
 		result.put("status", "true");
-		result.put("data", this.datastore.getEvaluationsSortedByTimestamp(id));
+		if (after == null) {
+			result.put("data", this.datastore.getEvaluationsSortedByTimestamp(id));
+		} else {
+			/* only the evaluations the client has not seen yet; the cursor is a sequence number, since time stamps may repeat or arrive out of order */
+			EvaluationSnapshot delta = this.datastore.getEvaluationsAfter(id, after);
+			result.put("data", delta.getEvaluations());
+			result.put("timestamps", delta.getTimestamps());
+			result.put("lastSequence", Math.max(delta.getLastSequence(), after));
+		}
 		return new ResponseEntity<>(result, HttpStatus.OK);
 	}
 
@@ -309,6 +371,23 @@ public class InterviewController {
 		return result;
 	}
 
+	/**
+	 * Streams the state transitions of the process as server-sent events, so clients do not need to poll the status.
+	 */
+	@GetMapping("/api/process/{id}/events")
+	public SseEmitter processEvents(@PathVariable("id") final String processID) throws Exception {
+		return this.processEventPublisher.subscribe(processID);
+	}
+
+	/**
+	 * Returns the best solution found so far by the search of the process.
+	 */
+	@GetMapping("/api/process/{id}/incumbent")
+	@ResponseBody
+	public ResponseEntity<Object> getIncumbent(@PathVariable("id") final String processID) {
+		return new ResponseEntity<>(ProcessEventPublisher.toIncumbentData(IncumbentTracker.getSummary(processID)), HttpStatus.OK);
+	}
+
 	@PostMapping("/api/process/{id}/status")
 	@ResponseBody
 	public ResponseEntity<Object> setProcessStatus(@PathVariable("id") final String processID, @RequestBody final Map<String, String> e) throws Exception {
@@ -326,17 +405,16 @@ public class InterviewController {
 	@RequestMapping("/api/result/{id}")
 	@ResponseBody
 	public ResponseEntity<Object> pushResult(@PathVariable("id") final String id) throws Exception {
-		PROSECOProcessEnvironment env = ProcessStateProvider.getProcessEnvironment(id);
 		int remainingTime = this.getTimeoutValue(id);
-		boolean isComplete = this.checkStatus(id);
-		String serviceHandle = "";
-		try {
-			serviceHandle = FileUtils.readFileToString(env.getServiceHandle(), Charset.defaultCharset());
-		} catch (Exception e) {
+		String serviceHandle = ProcessStateProvider.getServiceHandle(id);
+		boolean isComplete = serviceHandle != null;
+		if (serviceHandle == null) {
 			logger.trace("No service handle available yet");
+			serviceHandle = "";
 		}
 
 		Map<String, String> result = new HashMap<>();
+		result.put("queuePosition", this.jobScheduler.getQueuePosition(id) + "");
 		result.put("remainingTime", remainingTime + "");
 		result.put("isComplete", isComplete + "");
 		result.put("serviceHandle", serviceHandle);
@@ -345,11 +423,11 @@ public class InterviewController {
 	}
 
 	private int getTimeoutValue(final String id) throws Exception {
-		Long deadline = deadlineCache.get(id);
+		ProcessDeadline deadline = ProcessDeadline.forProcess(id);
 		if (deadline == null) {
 			return -1;
 		} else {
-			return (int) ((deadline - System.currentTimeMillis()) / 1000);
+			return (int) (deadline.getRemainingMS() / 1000);
 		}
 	}
 
@@ -357,16 +435,4 @@ public class InterviewController {
 		PROSECOProcessEnvironment env = ProcessStateProvider.getProcessEnvironment(id);
 		return SerializationUtil.readAsJSON(env.getInterviewStateFile());
 	}
-
-	/**
-	 * Checks if the search strategy completed
-	 *
-	 * @param id
-	 * @return
-	 * @throws Exception
-	 */
-	private boolean checkStatus(final String id) throws Exception {
-		PROSECOProcessEnvironment env = ProcessStateProvider.getProcessEnvironment(id);
-		return env.getServiceHandle().exists();
-	}
 }
@@ -0,0 +1,150 @@
+package de.upb.crc901.proseco.view.app.model;
+
+import java.util.Arrays;
+
+/**
+ * The evaluations reported by one strategy, ordered by the time stamps of the candidates.
+ *
+ * Time stamps and evaluations are kept in primitive arrays. Writers append under a lock; readers take the current {@link EvaluationSnapshot} without locking. This works because array cells that are visible in a published snapshot are never written again: appends go behind the last published cell, while out-of-order inserts and compactions copy into fresh arrays. At most <code>retentionLimit</code> evaluations are retained; older ones are dropped.
+ *
+ * Every evaluation is numbered in the order of its arrival. Polling clients use these sequence numbers as their cursor, because time stamps may repeat and evaluations may arrive out of order.
+ */
+public class EvaluationSeries {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final int retentionLimit;
+
+	/* guarded by this */
+	private long[] timestamps = new long[INITIAL_CAPACITY];
+	private double[] evaluations = new double[INITIAL_CAPACITY];
+	private long[] sequences = new long[INITIAL_CAPACITY];
+	private long lastSequence = -1;
+	private int start = 0;
+	private int end = 0;
+
+	/* log of the out-of-order inserts, see EvaluationSnapshot.OutOfOrderInserts; guarded by this */
+	private long[] insertedSequences = new long[INITIAL_CAPACITY];
+	private long[] insertedTimestamps = new long[INITIAL_CAPACITY];
+	private int insertedCount = 0;
+	private long insertFloor = -1;
+
+	private volatile EvaluationSnapshot snapshot = EvaluationSnapshot.EMPTY;
+
+	public EvaluationSeries(final int retentionLimit) {
+		if (retentionLimit < 1) {
+			throw new IllegalArgumentException("The retention limit must be positive but is " + retentionLimit);
+		}
+		this.retentionLimit = retentionLimit;
+	}
+
+	public synchronized void append(final long timestamp, final double evaluation) {
+		this.add(timestamp, evaluation);
+		this.publish();
+	}
+
+	/**
+	 * Appends a batch of evaluations and publishes them with a single snapshot.
+	 */
+	public synchronized void appendAll(final long[] timestamps, final double[] evaluations, final int length) {
+		for (int i = 0; i < length; i++) {
+			this.add(timestamps[i], evaluations[i]);
+		}
+		this.publish();
+	}
+
+	private void add(final long timestamp, final double evaluation) {
+		long sequence = ++this.lastSequence;
+		if (this.end > this.start && timestamp < this.timestamps[this.end - 1]) {
+			this.insertOutOfOrder(timestamp, evaluation, sequence);
+		} else {
+			if (this.end == this.timestamps.length) {
+				this.compact(this.end - this.start + 1);
+			}
+			this.timestamps[this.end] = timestamp;
+			this.evaluations[this.end] = evaluation;
+			this.sequences[this.end] = sequence;
+			this.end++;
+		}
+		if (this.end - this.start > this.retentionLimit) {
+			this.start = this.end - this.retentionLimit;
+		}
+	}
+
+	private void publish() {
+		EvaluationSnapshot.OutOfOrderInserts inserts = this.insertedCount > 0 || this.insertFloor >= 0
+				? new EvaluationSnapshot.OutOfOrderInserts(this.insertedSequences, this.insertedTimestamps, this.insertedCount, this.insertFloor)
+				: EvaluationSnapshot.OutOfOrderInserts.NONE;
+		this.snapshot = new EvaluationSnapshot(this.timestamps, this.evaluations, this.sequences, this.start, this.end, this.lastSequence, inserts);
+	}
+
+	/**
+	 * @return An immutable view on the currently retained evaluations.
+	 */
+	public EvaluationSnapshot snapshot() {
+		return this.snapshot;
+	}
+
+	/**
+	 * Moves the retained entries to the beginning of fresh arrays that can hold at least the given number of entries.
+	 */
+	private void compact(final int minCapacity) {
+		int size = this.end - this.start;
+		int capacity = Math.max(INITIAL_CAPACITY, Math.max(minCapacity, Math.min(2 * size, 2 * this.retentionLimit)));
+		this.timestamps = Arrays.copyOfRange(this.timestamps, this.start, this.start + capacity);
+		this.evaluations = Arrays.copyOfRange(this.evaluations, this.start, this.start + capacity);
+		this.sequences = Arrays.copyOfRange(this.sequences, this.start, this.start + capacity);
+		this.start = 0;
+		this.end = size;
+	}
+
+	private void insertOutOfOrder(final long timestamp, final double evaluation, final long sequence) {
+		int position = EvaluationSnapshot.firstIndexAfter(this.timestamps, this.start, this.end, timestamp);
+		int size = this.end - this.start;
+		int capacity = Math.max(this.timestamps.length, size + 1);
+		long[] newTimestamps = new long[capacity];
+		double[] newEvaluations = new double[capacity];
+		long[] newSequences = new long[capacity];
+		int head = position - this.start;
+		System.arraycopy(this.timestamps, this.start, newTimestamps, 0, head);
+		System.arraycopy(this.evaluations, this.start, newEvaluations, 0, head);
+		System.arraycopy(this.sequences, this.start, newSequences, 0, head);
+		newTimestamps[head] = timestamp;
+		newEvaluations[head] = evaluation;
+		newSequences[head] = sequence;
+		System.arraycopy(this.timestamps, position, newTimestamps, head + 1, this.end - position);
+		System.arraycopy(this.evaluations, position, newEvaluations, head + 1, this.end - position);
+		System.arraycopy(this.sequences, position, newSequences, head + 1, this.end - position);
+		this.timestamps = newTimestamps;
+		this.evaluations = newEvaluations;
+		this.sequences = newSequences;
+		this.start = 0;
+		this.end = size + 1;
+		this.logInsert(timestamp, sequence);
+	}
+
+	/**
+	 * Remembers an out-of-order insert, so that polling clients can find it without scanning all retained evaluations. The log holds at most as many inserts as evaluations are retained; when it is full, its older half
+	 * is dropped.
+	 */
+	private void logInsert(final long timestamp, final long sequence) {
+		if (this.insertedCount == this.insertedSequences.length) {
+			if (this.insertedCount < this.retentionLimit) {
+				int capacity = Math.min(2 * this.insertedCount, this.retentionLimit);
+				this.insertedSequences = Arrays.copyOf(this.insertedSequences, capacity);
+				this.insertedTimestamps = Arrays.copyOf(this.insertedTimestamps, capacity);
+			} else {
+				int keep = this.insertedCount / 2;
+				int dropped = this.insertedCount - keep;
+				this.insertFloor = this.insertedSequences[dropped - 1];
+				this.insertedSequences = Arrays.copyOfRange(this.insertedSequences, dropped, dropped + this.insertedSequences.length);
+				this.insertedTimestamps = Arrays.copyOfRange(this.insertedTimestamps, dropped, dropped + this.insertedTimestamps.length);
+				this.insertedCount = keep;
+			}
+		}
+		this.insertedSequences[this.insertedCount] = sequence;
+		this.insertedTimestamps[this.insertedCount] = timestamp;
+		this.insertedCount++;
+	}
+
+}
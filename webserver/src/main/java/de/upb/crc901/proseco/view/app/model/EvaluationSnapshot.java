@@ -0,0 +1,156 @@
+package de.upb.crc901.proseco.view.app.model;
+
+import java.util.Arrays;
+
+/**
+ * Immutable view on a range of the arrays of an {@link EvaluationSeries}.
+ */
+public class EvaluationSnapshot {
+
+	static final EvaluationSnapshot EMPTY = new EvaluationSnapshot(new long[0], new double[0], new long[0], 0, 0, -1, OutOfOrderInserts.NONE);
+
+	/**
+	 * Sequence numbers and time stamps of the evaluations that have been inserted out of order, in the order of their arrival. Entries before <code>count</code> are never written again. If the log has been
+	 * truncated, it only covers the evaluations after <code>floor</code>.
+	 */
+	static final class OutOfOrderInserts {
+		static final OutOfOrderInserts NONE = new OutOfOrderInserts(new long[0], new long[0], 0, -1);
+
+		private final long[] sequences;
+		private final long[] timestamps;
+		private final int count;
+		private final long floor;
+
+		OutOfOrderInserts(final long[] sequences, final long[] timestamps, final int count, final long floor) {
+			this.sequences = sequences;
+			this.timestamps = timestamps;
+			this.count = count;
+			this.floor = floor;
+		}
+	}
+
+	private final long[] timestamps;
+	private final double[] evaluations;
+	private final long[] sequences;
+	private final int from;
+	private final int to;
+	private final long lastSequence;
+	private final OutOfOrderInserts inserts;
+
+	EvaluationSnapshot(final long[] timestamps, final double[] evaluations, final long[] sequences, final int from, final int to, final long lastSequence, final OutOfOrderInserts inserts) {
+		this.timestamps = timestamps;
+		this.evaluations = evaluations;
+		this.sequences = sequences;
+		this.from = from;
+		this.to = to;
+		this.lastSequence = lastSequence;
+		this.inserts = inserts;
+	}
+
+	public int size() {
+		return this.to - this.from;
+	}
+
+	public long[] getTimestamps() {
+		return Arrays.copyOfRange(this.timestamps, this.from, this.to);
+	}
+
+	public double[] getEvaluations() {
+		return Arrays.copyOfRange(this.evaluations, this.from, this.to);
+	}
+
+	/**
+	 * @return The time stamp of the latest evaluation or -1 if there is none.
+	 */
+	public long getLastTimestamp() {
+		return this.size() > 0 ? this.timestamps[this.to - 1] : -1;
+	}
+
+	/**
+	 * @return The sequence number of the latest evaluation that has arrived in the series, or -1 if there is none. A client that has received this snapshot continues polling after this number.
+	 */
+	public long getLastSequence() {
+		return this.lastSequence;
+	}
+
+	/**
+	 * @return The evaluations that have arrived after the one with the given sequence number, sorted by time stamp. This includes evaluations with the same time stamp as earlier ones and those inserted out of order.
+	 *
+	 *         Evaluations that arrive in order are appended, so the newer ones form a suffix that is found by scanning backwards. Only if evaluations have been inserted out of order since the given sequence number,
+	 *         the range from the earliest of them on is scanned as well. Thus the cost of a poll depends on the number of new evaluations, not on the number of retained ones.
+	 */
+	public EvaluationSnapshot after(final long sequence) {
+		if (sequence >= this.lastSequence) {
+			return new EvaluationSnapshot(this.timestamps, this.evaluations, this.sequences, this.to, this.to, this.lastSequence, this.inserts);
+		}
+
+		int begin = this.to;
+		while (begin > this.from && this.sequences[begin - 1] > sequence) {
+			begin--;
+		}
+		if (sequence < this.inserts.floor) {
+			/* the client is too far behind to tell where the evaluations inserted since then are */
+			begin = this.from;
+		} else {
+			for (int i = this.inserts.count - 1; i >= 0 && this.inserts.sequences[i] > sequence; i--) {
+				begin = Math.min(begin, firstIndexNotBefore(this.timestamps, this.from, begin, this.inserts.timestamps[i]));
+			}
+		}
+
+		int size = 0;
+		for (int i = begin; i < this.to; i++) {
+			if (this.sequences[i] > sequence) {
+				size++;
+			}
+		}
+		if (size == this.to - begin) {
+			return new EvaluationSnapshot(this.timestamps, this.evaluations, this.sequences, begin, this.to, this.lastSequence, this.inserts);
+		}
+		long[] newTimestamps = new long[size];
+		double[] newEvaluations = new double[size];
+		long[] newSequences = new long[size];
+		for (int i = begin, j = 0; i < this.to; i++) {
+			if (this.sequences[i] > sequence) {
+				newTimestamps[j] = this.timestamps[i];
+				newEvaluations[j] = this.evaluations[i];
+				newSequences[j] = this.sequences[i];
+				j++;
+			}
+		}
+		return new EvaluationSnapshot(newTimestamps, newEvaluations, newSequences, 0, size, this.lastSequence, OutOfOrderInserts.NONE);
+	}
+
+	/**
+	 * Binary search for the first index in [from, to) whose time stamp is not smaller than the given one.
+	 */
+	static int firstIndexNotBefore(final long[] timestamps, final int from, final int to, final long timestamp) {
+		int low = from;
+		int high = to;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (timestamps[mid] < timestamp) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Binary search for the first index in [from, to) whose time stamp is greater than the given one.
+	 */
+	static int firstIndexAfter(final long[] timestamps, final int from, final int to, final long timestamp) {
+		int low = from;
+		int high = to;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (timestamps[mid] <= timestamp) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
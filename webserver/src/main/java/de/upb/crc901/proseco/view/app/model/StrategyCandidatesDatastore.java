@@ -1,44 +1,67 @@
 package de.upb.crc901.proseco.view.app.model;
 
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Keeps the evaluations posted by the strategies. Strategies post concurrently, so all operations are thread-safe; reads never block writers.
+ */
 public class StrategyCandidatesDatastore {
 
-	private final Map<String, List<StrategyCandidateFoundEvent>> eventStore;
+	public static final int DEFAULT_RETENTION_LIMIT = 10000;
+
+	private final int retentionLimit;
+	private final Map<String, EvaluationSeries> eventStore;
 
 	public StrategyCandidatesDatastore() {
-		this.eventStore = new HashMap<>();
+		this(DEFAULT_RETENTION_LIMIT);
+	}
+
+	/**
+	 * @param retentionLimit The maximum number of evaluations retained per strategy.
+	 */
+	public StrategyCandidatesDatastore(final int retentionLimit) {
+		this.retentionLimit = retentionLimit;
+		this.eventStore = new ConcurrentHashMap<>();
 	}
 
 	public boolean put(final String strategyID, final StrategyCandidateFoundEvent e) {
-		List<StrategyCandidateFoundEvent> eventList = this.eventStore.get(strategyID);
-		if (eventList == null) {
-			eventList = new LinkedList<>();
-			this.eventStore.put(strategyID, eventList);
-		}
-		return eventList.add(e);
+		this.eventStore.computeIfAbsent(strategyID, k -> new EvaluationSeries(this.retentionLimit)).append(e.getCandidateFoundTimestamp(), e.getCandidateEvaluation());
+		return true;
 	}
 
-	public double[] getEvaluationsSortedByTimestamp(final String strategyID) {
-		if (!this.eventStore.containsKey(strategyID)) {
-			return new double[0];
+	public int putAll(final String strategyID, final List<StrategyCandidateFoundEvent> events) {
+		int n = events.size();
+		long[] timestamps = new long[n];
+		double[] evaluations = new double[n];
+		for (int i = 0; i < n; i++) {
+			StrategyCandidateFoundEvent e = events.get(i);
+			timestamps[i] = e.getCandidateFoundTimestamp();
+			evaluations[i] = e.getCandidateEvaluation();
 		}
+		this.eventStore.computeIfAbsent(strategyID, k -> new EvaluationSeries(this.retentionLimit)).appendAll(timestamps, evaluations, n);
+		return n;
+	}
 
-		return new LinkedList<>(this.eventStore.get(strategyID)).stream().sorted(new Comparator<StrategyCandidateFoundEvent>() {
-			@Override
-			public int compare(final StrategyCandidateFoundEvent arg0, final StrategyCandidateFoundEvent arg1) {
-				return Long.compare(arg0.getCandidateFoundTimestamp(), arg1.getCandidateFoundTimestamp());
-			}
-		}).mapToDouble(x -> x.getCandidateEvaluation()).toArray();
+	public double[] getEvaluationsSortedByTimestamp(final String strategyID) {
+		return this.getSnapshot(strategyID).getEvaluations();
+	}
 
+	/**
+	 * @return The evaluations of the strategy that have arrived after the one with the given sequence number, sorted by time stamp.
+	 */
+	public EvaluationSnapshot getEvaluationsAfter(final String strategyID, final long sequence) {
+		return this.getSnapshot(strategyID).after(sequence);
 	}
 
 	public int size() {
-		return this.eventStore.values().stream().mapToInt(x -> x.size()).sum();
+		return this.eventStore.values().stream().mapToInt(x -> x.snapshot().size()).sum();
+	}
+
+	private EvaluationSnapshot getSnapshot(final String strategyID) {
+		EvaluationSeries series = this.eventStore.get(strategyID);
+		return series != null ? series.snapshot() : EvaluationSnapshot.EMPTY;
 	}
 
 }
@@ -0,0 +1,34 @@
+package de.upb.crc901.proseco.view.app.model;
+
+/**
+ * New console lines of a strategy as pushed to the subscribers of the log stream.
+ */
+public class StrategyLogEvent {
+
+	private final String strategyName;
+	private final String stream;
+	private final String lines;
+
+	public StrategyLogEvent(final String strategyName, final String stream, final String lines) {
+		this.strategyName = strategyName.replace(" ", "-");
+		this.stream = stream;
+		this.lines = lines;
+	}
+
+	public String getStrategyName() {
+		return this.strategyName;
+	}
+
+	public String getStream() {
+		return this.stream;
+	}
+
+	public String getLines() {
+		return this.lines;
+	}
+
+	@Override
+	public String toString() {
+		return "StrategyLogEvent [strategyName=" + this.strategyName + ", stream=" + this.stream + ", lines=" + this.lines + "]";
+	}
+}
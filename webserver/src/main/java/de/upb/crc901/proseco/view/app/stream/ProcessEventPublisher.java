@@ -0,0 +1,164 @@
+package de.upb.crc901.proseco.view.app.stream;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import de.upb.crc901.proseco.commons.processstatus.EProcessState;
+import de.upb.crc901.proseco.commons.processstatus.ProcessStateChangeEvent;
+import de.upb.crc901.proseco.commons.processstatus.ProcessStateListener;
+import de.upb.crc901.proseco.commons.processstatus.ProcessStateProvider;
+import de.upb.crc901.proseco.core.composition.IncumbentListener;
+import de.upb.crc901.proseco.core.composition.IncumbentTracker;
+
+/**
+ * Pushes the state transitions of a process, including the service handle once the service has been deployed, and every new best solution of its search to the subscribers of that process.
+ *
+ * Right after subscribing, a client receives the current state and best solution, so it does not need to query them before opening the stream. The subscriber set of a process also serves as its lock: the initial events
+ * of a new subscriber and the dispatch of events to the subscribers of the same process never interleave, so a stale initial state can never overwrite a newer transition on the client. The set of a process is removed once its last subscriber has been closed
+ * or the process is done.
+ */
+public class ProcessEventPublisher implements ProcessStateListener, IncumbentListener {
+
+	private static final Logger L = LoggerFactory.getLogger(ProcessEventPublisher.class);
+
+	private static final String STATE_EVENT_NAME = "state";
+	private static final String INCUMBENT_EVENT_NAME = "incumbent";
+	private static final long SSE_TIMEOUT_MS = 60 * 60 * 1000L;
+	private static final int SUBSCRIBER_QUEUE_CAPACITY = 16;
+
+	private final Map<String, Set<SseSubscriber>> subscribers = new ConcurrentHashMap<>();
+	private final ExecutorService senders = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "process-event-sender");
+		t.setDaemon(true);
+		return t;
+	});
+
+	public ProcessEventPublisher() {
+		ProcessStateProvider.addListener(this);
+		IncumbentTracker.addListener(this);
+	}
+
+	public SseEmitter subscribe(final String processId) throws Exception {
+		SseSubscriber subscriber = new SseSubscriber(new SseEmitter(SSE_TIMEOUT_MS), SUBSCRIBER_QUEUE_CAPACITY, this.senders);
+		while (true) {
+			Set<SseSubscriber> subscribersOfProcess = this.subscribers.computeIfAbsent(processId, k -> ConcurrentHashMap.newKeySet());
+			synchronized (subscribersOfProcess) {
+				if (this.subscribers.get(processId) != subscribersOfProcess) {
+					/* the set has been removed after its last subscriber had been closed */
+					continue;
+				}
+				L.debug("New state subscriber for process {}", processId);
+
+				try {
+					String state = ProcessStateProvider.getProcessStatus(processId);
+					subscriber.offer(STATE_EVENT_NAME, this.toEventData(null, state, System.currentTimeMillis(), ProcessStateProvider.getServiceHandle(processId)));
+					IncumbentTracker.Summary incumbent = IncumbentTracker.getSummary(processId);
+					if (incumbent != null && incumbent.hasSolution()) {
+						subscriber.offer(INCUMBENT_EVENT_NAME, toIncumbentData(incumbent));
+					}
+					if (EProcessState.DONE.toString().equals(state)) {
+						/* no further events will follow */
+						subscriber.complete();
+						return subscriber.getEmitter();
+					}
+					subscribersOfProcess.add(subscriber);
+				} finally {
+					if (subscribersOfProcess.isEmpty()) {
+						this.subscribers.remove(processId, subscribersOfProcess);
+					}
+				}
+			}
+			subscriber.onClose(() -> this.unsubscribe(processId, subscriber));
+			return subscriber.getEmitter();
+		}
+	}
+
+	@Override
+	public void onProcessStateChanged(final ProcessStateChangeEvent event) {
+		Set<SseSubscriber> subscribersOfProcess = this.subscribers.get(event.getProcessId());
+		if (subscribersOfProcess == null) {
+			return;
+		}
+		Map<String, Object> data = this.toEventData(event.getPreviousState() != null ? event.getPreviousState().toString() : null, event.getNewState().toString(), event.getTimestamp(), event.getServiceHandle());
+		synchronized (subscribersOfProcess) {
+			subscribersOfProcess.removeIf(SseSubscriber::isClosed);
+			for (SseSubscriber subscriber : subscribersOfProcess) {
+				subscriber.offer(STATE_EVENT_NAME, data);
+			}
+			if (event.getNewState() == EProcessState.DONE) {
+				/* no further events will follow, so the streams are completed once the last event has been sent */
+				for (SseSubscriber subscriber : subscribersOfProcess) {
+					subscriber.complete();
+				}
+				subscribersOfProcess.clear();
+				this.subscribers.remove(event.getProcessId(), subscribersOfProcess);
+			}
+		}
+	}
+
+	private void unsubscribe(final String processId, final SseSubscriber subscriber) {
+		Set<SseSubscriber> subscribersOfProcess = this.subscribers.get(processId);
+		if (subscribersOfProcess == null) {
+			return;
+		}
+		synchronized (subscribersOfProcess) {
+			subscribersOfProcess.remove(subscriber);
+			if (subscribersOfProcess.isEmpty()) {
+				this.subscribers.remove(processId, subscribersOfProcess);
+			}
+		}
+	}
+
+	@Override
+	public void onNewIncumbent(final String processId, final String strategyName, final double score, final int numberOfSolutions) {
+		Set<SseSubscriber> subscribersOfProcess = this.subscribers.get(processId);
+		if (subscribersOfProcess == null) {
+			return;
+		}
+		Map<String, Object> data = toIncumbentData(strategyName, score, numberOfSolutions);
+		synchronized (subscribersOfProcess) {
+			subscribersOfProcess.removeIf(SseSubscriber::isClosed);
+			for (SseSubscriber subscriber : subscribersOfProcess) {
+				subscriber.offer(INCUMBENT_EVENT_NAME, data);
+			}
+		}
+	}
+
+	/**
+	 * @return The best solution found so far by the search of the process, in the format of the incumbent events.
+	 */
+	public static Map<String, Object> toIncumbentData(final IncumbentTracker.Summary incumbent) {
+		if (incumbent == null || !incumbent.hasSolution()) {
+			return toIncumbentData(null, Double.NaN, incumbent != null ? incumbent.getNumberOfSolutions() : 0);
+		}
+		return toIncumbentData(incumbent.getBestStrategy(), incumbent.getBestScore(), incumbent.getNumberOfSolutions());
+	}
+
+	private static Map<String, Object> toIncumbentData(final String strategyName, final double score, final int numberOfSolutions) {
+		Map<String, Object> data = new HashMap<>();
+		data.put("strategy", strategyName);
+		data.put("score", Double.isNaN(score) ? null : score);
+		data.put("numberOfSolutions", numberOfSolutions);
+		data.put("timestamp", System.currentTimeMillis());
+		return data;
+	}
+
+	private Map<String, Object> toEventData(final String previousState, final String state, final long timestamp, final String serviceHandle) {
+		Map<String, Object> data = new HashMap<>();
+		data.put("previousStatus", previousState);
+		data.put("status", state);
+		data.put("timestamp", timestamp);
+		data.put("isComplete", serviceHandle != null);
+		data.put("serviceHandle", serviceHandle != null ? serviceHandle : "");
+		return data;
+	}
+
+}
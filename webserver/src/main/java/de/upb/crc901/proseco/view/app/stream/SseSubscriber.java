@@ -0,0 +1,142 @@
+package de.upb.crc901.proseco.view.app.stream;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * A single client of a server-sent event stream.
+ *
+ * Events are put into a bounded queue and sent to the client by a task on the given executor, so the producer never waits for the network. If the client does not keep up and the queue is full, new events are dropped and the client is told how many events it has missed.
+ */
+public class SseSubscriber {
+
+	private static final Logger L = LoggerFactory.getLogger(SseSubscriber.class);
+
+	private static final String DROPPED_EVENT_NAME = "dropped";
+
+	private final SseEmitter emitter;
+	private final BlockingQueue<Object[]> queue;
+	private final Executor executor;
+	private final AtomicBoolean draining = new AtomicBoolean(false);
+	private final AtomicLong dropped = new AtomicLong(0);
+	private volatile boolean closed = false;
+	private volatile boolean completing = false;
+	private final AtomicBoolean closeNotified = new AtomicBoolean(false);
+	private volatile Runnable closeCallback;
+
+	public SseSubscriber(final SseEmitter emitter, final int capacity, final Executor executor) {
+		this.emitter = emitter;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.executor = executor;
+		emitter.onCompletion(this::markClosed);
+		emitter.onTimeout(this::markClosed);
+	}
+
+	public SseEmitter getEmitter() {
+		return this.emitter;
+	}
+
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	/**
+	 * Sets a callback that is run once as soon as the subscriber is closed, for whatever reason. If the subscriber is already closed, it is run right away.
+	 */
+	public void onClose(final Runnable callback) {
+		this.closeCallback = callback;
+		if (this.closed) {
+			this.notifyClosed();
+		}
+	}
+
+	/**
+	 * Enqueues an event without blocking.
+	 *
+	 * @return <code>false</code> if the event has been dropped because the subscriber is closed or its queue is full.
+	 */
+	public boolean offer(final String eventName, final Object data) {
+		if (this.closed || this.completing) {
+			return false;
+		}
+		boolean accepted = this.queue.offer(new Object[] { eventName, data });
+		if (!accepted) {
+			this.dropped.incrementAndGet();
+		}
+		this.scheduleDrain();
+		return accepted;
+	}
+
+	/**
+	 * Completes the stream once all events enqueued so far have been sent. Events offered afterwards are dropped.
+	 */
+	public void complete() {
+		this.completing = true;
+		this.scheduleDrain();
+	}
+
+	public void close() {
+		this.markClosed();
+		this.queue.clear();
+		this.emitter.complete();
+	}
+
+	private void scheduleDrain() {
+		if (this.draining.compareAndSet(false, true)) {
+			this.executor.execute(this::drain);
+		}
+	}
+
+	private void drain() {
+		try {
+			Object[] event;
+			while (!this.closed && (event = this.queue.poll()) != null) {
+				long missed = this.dropped.getAndSet(0);
+				if (missed > 0) {
+					this.emitter.send(SseEmitter.event().name(DROPPED_EVENT_NAME).data(missed));
+				}
+				this.emitter.send(SseEmitter.event().name((String) event[0]).data(event[1], MediaType.APPLICATION_JSON));
+			}
+		} catch (IOException | IllegalStateException e) {
+			L.debug("Subscriber disconnected: {}", e.getMessage());
+			this.markClosed();
+			this.queue.clear();
+		} finally {
+			this.draining.set(false);
+		}
+		if (!this.closed && !this.queue.isEmpty()) {
+			this.scheduleDrain();
+		} else if (this.completing && this.queue.isEmpty()) {
+			this.finish();
+		}
+	}
+
+	private synchronized void finish() {
+		if (!this.closed) {
+			this.markClosed();
+			this.emitter.complete();
+		}
+	}
+
+	private void markClosed() {
+		this.closed = true;
+		this.notifyClosed();
+	}
+
+	private void notifyClosed() {
+		Runnable callback = this.closeCallback;
+		if (callback != null && this.closeNotified.compareAndSet(false, true)) {
+			callback.run();
+		}
+	}
+
+}
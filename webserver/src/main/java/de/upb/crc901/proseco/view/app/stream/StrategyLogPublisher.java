@@ -0,0 +1,172 @@
+package de.upb.crc901.proseco.view.app.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import de.upb.crc901.proseco.commons.console.EConsoleStream;
+import de.upb.crc901.proseco.core.composition.StrategyOutputBroadcaster;
+import de.upb.crc901.proseco.core.composition.StrategyOutputListener;
+import de.upb.crc901.proseco.view.app.model.StrategyLogEvent;
+
+/**
+ * Pushes the console lines of running strategies to the subscribers of a process.
+ *
+ * The publisher is fed directly by the threads forwarding the pipes of the strategy processes, so streaming clients never touch the file system. Output is cut into complete lines before it is published; each subscriber has a bounded queue, so a slow client only loses events and never stalls a strategy.
+ *
+ * The lines published so far are kept in a bounded backlog which a new subscriber receives as its first event, so a client does not need to fetch the log files before opening the stream. State is only kept while the search of a process is running: once it has ended, whether it has found a
+ * solution or not, the subscribers receive an end event and all state of the process is dropped. A client that subscribes to a process whose search is not running receives the end event right away.
+ */
+public class StrategyLogPublisher implements StrategyOutputListener {
+
+	private static final Logger L = LoggerFactory.getLogger(StrategyLogPublisher.class);
+
+	private static final String LOG_EVENT_NAME = "log";
+	private static final String BACKLOG_EVENT_NAME = "backlog";
+	private static final String END_EVENT_NAME = "end";
+	private static final long SSE_TIMEOUT_MS = 30 * 60 * 1000L;
+	private static final int SUBSCRIBER_QUEUE_CAPACITY = 1024;
+	private static final int MAX_PENDING_LINE_BYTES = 64 * 1024;
+	private static final int MAX_BACKLOG_CHARS = 1024 * 1024;
+
+	/**
+	 * Subscribers, backlog and partial lines of a single process. All access is synchronized on the instance, so a new subscriber gets the backlog and then every later line, without gaps or duplicates.
+	 */
+	private static class ProcessLog {
+		private final Set<SseSubscriber> subscribers = new HashSet<>();
+		private final Deque<StrategyLogEvent> backlog = new ArrayDeque<>();
+		private final Map<String, ByteArrayOutputStream> pendingLines = new ConcurrentHashMap<>();
+		private int backlogChars = 0;
+		private boolean ended = false;
+	}
+
+	private final Map<String, ProcessLog> processLogs = new ConcurrentHashMap<>();
+	private final ExecutorService senders = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "strategy-log-sender");
+		t.setDaemon(true);
+		return t;
+	});
+
+	public StrategyLogPublisher() {
+		StrategyOutputBroadcaster.addListener(this);
+	}
+
+	public SseEmitter subscribe(final String processId) {
+		SseSubscriber subscriber = new SseSubscriber(new SseEmitter(SSE_TIMEOUT_MS), SUBSCRIBER_QUEUE_CAPACITY, this.senders);
+		ProcessLog processLog = this.processLogs.get(processId);
+		if (processLog != null) {
+			synchronized (processLog) {
+				if (!processLog.ended) {
+					subscriber.offer(BACKLOG_EVENT_NAME, new ArrayList<>(processLog.backlog));
+					processLog.subscribers.removeIf(SseSubscriber::isClosed);
+					processLog.subscribers.add(subscriber);
+					L.debug("New log subscriber for process {}", processId);
+					return subscriber.getEmitter();
+				}
+			}
+		}
+		subscriber.offer(END_EVENT_NAME, processId);
+		subscriber.complete();
+		return subscriber.getEmitter();
+	}
+
+	@Override
+	public void onSearchStarted(final String processId) {
+		this.drop(processId);
+		this.processLogs.put(processId, new ProcessLog());
+	}
+
+	@Override
+	public void onSearchEnded(final String processId) {
+		this.drop(processId);
+	}
+
+	@Override
+	public void onOutput(final String processId, final String strategyName, final EConsoleStream stream, final byte[] data, final int offset, final int length) {
+		ProcessLog processLog = this.processLogs.get(processId);
+		if (processLog == null) {
+			return;
+		}
+
+		ByteArrayOutputStream pending = processLog.pendingLines.computeIfAbsent(strategyName + "/" + stream, k -> new ByteArrayOutputStream());
+		int end = offset + length;
+		int lastLineBreak = end - 1;
+		while (lastLineBreak >= offset && data[lastLineBreak] != '\n') {
+			lastLineBreak--;
+		}
+
+		if (lastLineBreak < offset) {
+			pending.write(data, offset, length);
+			if (pending.size() > MAX_PENDING_LINE_BYTES) {
+				this.publish(processLog, strategyName, stream, pending);
+			}
+			return;
+		}
+		pending.write(data, offset, lastLineBreak + 1 - offset);
+		this.publish(processLog, strategyName, stream, pending);
+		pending.write(data, lastLineBreak + 1, end - lastLineBreak - 1);
+	}
+
+	@Override
+	public void onStreamClosed(final String processId, final String strategyName, final EConsoleStream stream) {
+		ProcessLog processLog = this.processLogs.get(processId);
+		if (processLog == null) {
+			return;
+		}
+		ByteArrayOutputStream pending = processLog.pendingLines.remove(strategyName + "/" + stream);
+		if (pending != null && pending.size() > 0) {
+			this.publish(processLog, strategyName, stream, pending);
+		}
+		synchronized (processLog) {
+			processLog.subscribers.removeIf(SseSubscriber::isClosed);
+		}
+	}
+
+	private void drop(final String processId) {
+		ProcessLog processLog = this.processLogs.remove(processId);
+		if (processLog == null) {
+			return;
+		}
+		synchronized (processLog) {
+			processLog.ended = true;
+			for (SseSubscriber subscriber : processLog.subscribers) {
+				subscriber.offer(END_EVENT_NAME, processId);
+				subscriber.complete();
+			}
+			processLog.subscribers.clear();
+			processLog.backlog.clear();
+		}
+		L.debug("Dropped log stream state of process {}", processId);
+	}
+
+	private void publish(final ProcessLog processLog, final String strategyName, final EConsoleStream stream, final ByteArrayOutputStream pending) {
+		StrategyLogEvent event = new StrategyLogEvent(strategyName, stream.toString(), new String(pending.toByteArray(), StandardCharsets.UTF_8));
+		pending.reset();
+		synchronized (processLog) {
+			if (processLog.ended) {
+				return;
+			}
+			processLog.backlog.addLast(event);
+			processLog.backlogChars += event.getLines().length();
+			while (processLog.backlogChars > MAX_BACKLOG_CHARS && processLog.backlog.size() > 1) {
+				processLog.backlogChars -= processLog.backlog.removeFirst().getLines().length();
+			}
+			for (SseSubscriber subscriber : processLog.subscribers) {
+				subscriber.offer(LOG_EVENT_NAME, event);
+			}
+		}
+	}
+
+}
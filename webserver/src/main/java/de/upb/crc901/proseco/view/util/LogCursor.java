@@ -0,0 +1,37 @@
+package de.upb.crc901.proseco.view.util;
+
+import de.upb.crc901.proseco.commons.console.ConsoleSegments;
+
+/**
+ * Position of a reader in a console file that may be rotated: the index of a segment (see {@link ConsoleSegments#getActiveIndex(java.io.File)}) and the byte offset inside that segment.
+ */
+public class LogCursor {
+
+	/** Cursor of a reader that has not polled the file yet. */
+	public static final LogCursor FIRST_POLL = new LogCursor(-1, 0);
+
+	private final int segment;
+	private final long offset;
+
+	public LogCursor(final int segment, final long offset) {
+		this.segment = segment;
+		this.offset = offset;
+	}
+
+	public int getSegment() {
+		return this.segment;
+	}
+
+	public long getOffset() {
+		return this.offset;
+	}
+
+	public boolean isFirstPoll() {
+		return this.segment < 0;
+	}
+
+	@Override
+	public String toString() {
+		return "LogCursor [segment=" + this.segment + ", offset=" + this.offset + "]";
+	}
+}
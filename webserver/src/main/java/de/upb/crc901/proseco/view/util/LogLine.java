@@ -1,18 +1,21 @@
 package de.upb.crc901.proseco.view.util;
 
+/**
+ * Remembers up to which position the console files of a strategy have already been delivered to the frontend.
+ */
 public class LogLine {
 
 	private String strategyName;
 
-	private Integer outLineNumber;
-	private Integer errLineNumber;
-	private Integer allLineNumber;
+	private LogCursor outCursor;
+	private LogCursor errCursor;
+	private LogCursor allCursor;
 
 	public LogLine(String strategyName) {
 		this.strategyName = strategyName;
-		this.outLineNumber = 0;
-		this.errLineNumber = 0;
-		this.allLineNumber = 0;
+		this.outCursor = LogCursor.FIRST_POLL;
+		this.errCursor = LogCursor.FIRST_POLL;
+		this.allCursor = LogCursor.FIRST_POLL;
 	}
 
 	public String getStrategyName() {
@@ -23,28 +26,28 @@ public class LogLine {
 		this.strategyName = strategyName;
 	}
 
-	public Integer getOutLineNumber() {
-		return outLineNumber;
+	public LogCursor getOutCursor() {
+		return outCursor;
 	}
 
-	public void setOutLineNumber(Integer outLineNumber) {
-		this.outLineNumber = outLineNumber;
+	public void setOutCursor(LogCursor outCursor) {
+		this.outCursor = outCursor;
 	}
 
-	public Integer getErrLineNumber() {
-		return errLineNumber;
+	public LogCursor getErrCursor() {
+		return errCursor;
 	}
 
-	public void setErrLineNumber(Integer errLineNumber) {
-		this.errLineNumber = errLineNumber;
+	public void setErrCursor(LogCursor errCursor) {
+		this.errCursor = errCursor;
 	}
 
-	public Integer getAllLineNumber() {
-		return allLineNumber;
+	public LogCursor getAllCursor() {
+		return allCursor;
 	}
 
-	public void setAllLineNumber(Integer allLineNumber) {
-		this.allLineNumber = allLineNumber;
+	public void setAllCursor(LogCursor allCursor) {
+		this.allCursor = allCursor;
 	}
 
 }
@@ -1,38 +1,26 @@
 package de.upb.crc901.proseco.view.util;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Keeps the read offsets of the strategy console files per process and strategy.
+ */
 public class LogLineTracker {
 
-	private static Map<String, List<LogLine>> logMap = new HashMap<>();
+	private static Map<String, Map<String, LogLine>> logMap = new ConcurrentHashMap<>();
 
 	public static void updateLog(String prototypeId, LogLine logLine) {
-		List<LogLine> logLineList = logMap.get(prototypeId);
-		if (logLineList != null) {
-			for (LogLine e : logLineList) {
-				if (e.getStrategyName().equalsIgnoreCase(logLine.getStrategyName())) {
-					e.setAllLineNumber(logLine.getAllLineNumber());
-					e.setErrLineNumber(logLine.getErrLineNumber());
-					e.setOutLineNumber(logLine.getOutLineNumber());
-				}
-			}
-		} else {
-			logLineList = new ArrayList<>();
-			logLineList.add(logLine);
-			logMap.put(prototypeId, logLineList);
-		}
+		logMap.computeIfAbsent(prototypeId, k -> new ConcurrentHashMap<>()).put(logLine.getStrategyName().toLowerCase(Locale.ROOT), logLine);
 	}
 
 	public static LogLine getLogLines(String prototypeId, String strategyName) {
-		List<LogLine> logLineList = logMap.get(prototypeId);
-		if (logLineList != null) {
-			for (LogLine e : logLineList) {
-				if (e.getStrategyName().equalsIgnoreCase(strategyName)) {
-					return e;
-				}
+		Map<String, LogLine> logLines = logMap.get(prototypeId);
+		if (logLines != null) {
+			LogLine logLine = logLines.get(strategyName.toLowerCase(Locale.ROOT));
+			if (logLine != null) {
+				return logLine;
 			}
 		}
 		return new LogLine(strategyName);
@@ -0,0 +1,27 @@
+package de.upb.crc901.proseco.view.util;
+
+/**
+ * The lines appended to a console file since some position, together with the position from which the next read has to continue.
+ */
+public class LogTail {
+
+	private final String content;
+	private final LogCursor nextCursor;
+
+	public LogTail(final String content, final LogCursor nextCursor) {
+		this.content = content;
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * @return The new complete lines, <code>null</code> if the file does not exist.
+	 */
+	public String getContent() {
+		return this.content;
+	}
+
+	public LogCursor getNextCursor() {
+		return this.nextCursor;
+	}
+
+}
@@ -0,0 +1,194 @@
+package de.upb.crc901.proseco.view.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.upb.crc901.proseco.commons.console.ConsoleRecordReader;
+import de.upb.crc901.proseco.commons.console.ConsoleSegments;
+import de.upb.crc901.proseco.commons.console.ConsoleView;
+import de.upb.crc901.proseco.commons.console.EConsoleStream;
+
+/**
+ * Reads the lines that have been appended to a console file since a given position. Only the new bytes are read (positioned read on a {@link FileChannel}), so the cost of a poll does not depend on the size of the file.
+ *
+ * Only complete lines are returned; a trailing line that is still being written is delivered with the next poll. This also guarantees that multi-byte characters are never split.
+ *
+ * A position is a {@link LogCursor}, i.e. the index of a segment of the file and an offset inside that segment. When the file has been rotated since the last poll, the index of the active segment has changed and the
+ * reader finishes the segments it has not read completely yet, possibly across several polls, before it continues with the new active segment. If the file has been rotated before the first poll, the first poll returns
+ * the newest window of its content across the segments.
+ */
+public class LogTailer {
+
+	private static final Logger L = LoggerFactory.getLogger(LogTailer.class);
+
+	/* upper bound for the number of bytes delivered by a single poll */
+	private static final int MAX_BYTES_PER_READ = 4 * 1024 * 1024;
+
+	/* number of bytes delivered by the first poll of a file that has been rotated */
+	private static final int INITIAL_WINDOW_BYTES = 1024 * 1024;
+
+	private LogTailer() {
+		// intentionally left blank.
+	}
+
+	public static LogTail tail(final String filePath, final LogCursor cursor) {
+		return tail(Paths.get(filePath), cursor);
+	}
+
+	public static LogTail tail(final Path file, final LogCursor cursor) {
+		int activeSegment = ConsoleSegments.getActiveIndex(file.toFile());
+		if (!cursor.isFirstPoll() && cursor.getSegment() < activeSegment) {
+			return tailClosedSegment(file, cursor);
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (cursor.isFirstPoll() && activeSegment > 1) {
+				return tailWindow(file, size, activeSegment);
+			}
+			long position = cursor.isFirstPoll() ? 0 : cursor.getOffset();
+			if (cursor.getSegment() > activeSegment || size < position) {
+				L.debug("File {} has been created anew, reading it from the beginning.", file);
+				position = 0;
+			}
+			if (size == position) {
+				return new LogTail("", new LogCursor(activeSegment, position));
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size - position, MAX_BYTES_PER_READ));
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, position + buffer.position()) < 0) {
+					break;
+				}
+			}
+			if (ConsoleSegments.getActiveIndex(file.toFile()) != activeSegment) {
+				/* the file has been rotated while it was read, so the channel might belong to either segment */
+				return new LogTail("", cursor);
+			}
+			byte[] bytes = buffer.array();
+			int length = buffer.position();
+
+			int end = endOfLastLine(bytes, length);
+			if (end == 0) {
+				if (length < MAX_BYTES_PER_READ) {
+					/* the last line is not complete yet */
+					return new LogTail("", new LogCursor(activeSegment, position));
+				}
+				/* a single line exceeds the read window, so deliver it in pieces */
+				end = length;
+			}
+			return new LogTail(new String(bytes, 0, end, StandardCharsets.UTF_8), new LogCursor(activeSegment, position + end));
+		} catch (NoSuchFileException e) {
+			return new LogTail(null, cursor);
+		} catch (IOException e) {
+			L.warn("Could not tail file {} from {}: {}", file, cursor, e.getMessage());
+			return new LogTail(null, cursor);
+		}
+	}
+
+	/**
+	 * Reads the next part of a segment that has been closed since the last poll. A closed segment is complete, so its last line is delivered even without a line break; once the end of the segment has been reached, the
+	 * next poll continues with the next segment.
+	 */
+	private static LogTail tailClosedSegment(final Path file, final LogCursor cursor) {
+		File segment = ConsoleSegments.getClosedSegment(file.toFile(), cursor.getSegment());
+		if (segment == null) {
+			int next = ConsoleSegments.getNextIndex(file.toFile(), cursor.getSegment());
+			L.debug("Segment {} of {} has been deleted before it has been read completely, continuing with segment {}.", cursor.getSegment(), file, next);
+			return new LogTail("", new LogCursor(next, 0));
+		}
+		try {
+			byte[] bytes = ConsoleSegments.readFrom(segment, cursor.getOffset(), MAX_BYTES_PER_READ);
+			if (bytes.length < MAX_BYTES_PER_READ) {
+				return new LogTail(new String(bytes, StandardCharsets.UTF_8), new LogCursor(cursor.getSegment() + 1, 0));
+			}
+			int end = endOfLastLine(bytes, bytes.length);
+			if (end == 0) {
+				end = bytes.length;
+			}
+			return new LogTail(new String(bytes, 0, end, StandardCharsets.UTF_8), new LogCursor(cursor.getSegment(), cursor.getOffset() + end));
+		} catch (IOException e) {
+			/* the segment is being compressed or deleted, so try again with the next poll */
+			L.debug("Could not read segment {} of {}: {}", cursor.getSegment(), file, e.getMessage());
+			return new LogTail("", cursor);
+		}
+	}
+
+	/**
+	 * Reads the newest window of a rotated file across its segments, starting at the first complete line of the window.
+	 */
+	private static LogTail tailWindow(final Path file, final long activeLength, final int activeSegment) throws IOException {
+		byte[] bytes = ConsoleSegments.readWindow(file.toFile(), activeLength, INITIAL_WINDOW_BYTES);
+		int begin = 0;
+		if (bytes.length == INITIAL_WINDOW_BYTES) {
+			while (begin < bytes.length && bytes[begin] != '\n') {
+				begin++;
+			}
+			begin = Math.min(begin + 1, bytes.length);
+		}
+		int end = Math.max(begin, endOfLastLine(bytes, bytes.length));
+		/* the bytes of an incomplete last line are read again with the next poll */
+		long nextOffset = Math.max(0, activeLength - (bytes.length - end));
+		return new LogTail(new String(bytes, begin, end - begin, StandardCharsets.UTF_8), new LogCursor(activeSegment, nextOffset));
+	}
+
+	/**
+	 * Reads the records appended to a record-framed console log since the given position. Records are never split across segments, so a closed segment is read up to its last complete record before the next segment
+	 * is started. The first poll of a rotated log starts with the newest closed segment.
+	 *
+	 * @param stream
+	 *            The stream to show, or <code>null</code> for the merged view of both streams.
+	 */
+	public static LogTail tail(final Path recordLog, final LogCursor cursor, final EConsoleStream stream) {
+		File file = recordLog.toFile();
+		int activeSegment = ConsoleSegments.getActiveIndex(file);
+		LogCursor position = cursor.isFirstPoll() ? new LogCursor(Math.max(1, activeSegment - 1), 0) : cursor;
+		try {
+			if (position.getSegment() < activeSegment) {
+				File segment = ConsoleSegments.getClosedSegment(file, position.getSegment());
+				if (segment == null) {
+					return new LogTail("", new LogCursor(ConsoleSegments.getNextIndex(file, position.getSegment()), 0));
+				}
+				byte[] bytes = ConsoleSegments.readFrom(segment, position.getOffset(), MAX_BYTES_PER_READ);
+				ConsoleView view = ConsoleRecordReader.read(bytes, stream);
+				if (bytes.length < MAX_BYTES_PER_READ && view.getNextOffset() == bytes.length) {
+					return new LogTail(view.getContent(), new LogCursor(position.getSegment() + 1, 0));
+				}
+				return new LogTail(view.getContent(), new LogCursor(position.getSegment(), position.getOffset() + view.getNextOffset()));
+			}
+
+			ConsoleView view = ConsoleRecordReader.read(recordLog, position.getSegment() > activeSegment ? 0 : position.getOffset(), stream);
+			if (view == null) {
+				return new LogTail(null, cursor);
+			}
+			if (ConsoleSegments.getActiveIndex(file) != activeSegment) {
+				/* the log has been rotated while it was read, so the records might belong to either segment */
+				return new LogTail("", cursor);
+			}
+			return new LogTail(view.getContent(), new LogCursor(activeSegment, view.getNextOffset()));
+		} catch (IOException | IllegalArgumentException e) {
+			/* keep the strategy in the list and try again with the next poll */
+			L.warn("Could not read record log {} from {}: {}", recordLog, position, e.getMessage());
+			return new LogTail("", cursor);
+		}
+	}
+
+	private static int endOfLastLine(final byte[] bytes, final int length) {
+		int end = length;
+		while (end > 0 && bytes[end - 1] != '\n') {
+			end--;
+		}
+		return end;
+	}
+
+}